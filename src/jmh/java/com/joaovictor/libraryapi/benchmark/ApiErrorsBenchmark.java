@@ -0,0 +1,67 @@
+package com.joaovictor.libraryapi.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.joaovictor.libraryapi.api.dto.BookDTO;
+import com.joaovictor.libraryapi.api.exception.ApiErrors;
+import com.joaovictor.libraryapi.exception.BusinessException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatus;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Caminho de erro das respostas 4xx: criação da exceção (com stack trace), do ApiErrors e do JSON.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApiErrorsBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private BindingResult bindingResult;
+
+    @Setup
+    public void setUp() {
+        bindingResult = new BeanPropertyBindingResult(new BookDTO(), "bookDTO");
+        bindingResult.addError(new FieldError("bookDTO", "title", "Title não pode estar vazio."));
+        bindingResult.addError(new FieldError("bookDTO", "author", "Author não pode estar vazio."));
+        bindingResult.addError(new FieldError("bookDTO", "isbn", "ISBN não pode estar vazio."));
+    }
+
+    @Benchmark
+    public ApiErrors fromBindingResult() {
+        return new ApiErrors(bindingResult);
+    }
+
+    @Benchmark
+    public ApiErrors fromBusinessException() {
+        return new ApiErrors(new BusinessException("Isbn já cadastrado."));
+    }
+
+    @Benchmark
+    public ApiErrors fromResponseStatusException() {
+        return new ApiErrors(new ResponseStatusException(HttpStatus.NOT_FOUND, "Book não encontrado para o isbn informado."));
+    }
+
+    @Benchmark
+    public String bindingResultToJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(new ApiErrors(bindingResult));
+    }
+}
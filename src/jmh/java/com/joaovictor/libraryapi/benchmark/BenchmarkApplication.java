@@ -0,0 +1,114 @@
+package com.joaovictor.libraryapi.benchmark;
+
+import com.joaovictor.libraryapi.LibraryapiApplication;
+import com.joaovictor.libraryapi.model.entity.Book;
+import com.joaovictor.libraryapi.model.entity.Loan;
+import com.joaovictor.libraryapi.model.repository.BookRepository;
+import com.joaovictor.libraryapi.model.repository.LoanRepository;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Sobe a aplicação com o H2 em memória (sem servidor web, salvo em startWeb) para os benchmarks.
+ */
+public final class BenchmarkApplication {
+
+    private static final int SEED_CHUNK = 1000;
+    private static final String DEVTOOLS_DATASOURCE = "org.springframework.boot.devtools.autoconfigure.DevToolsDataSourceAutoConfiguration";
+    /* o exclude da linha de comando substitui o dos arquivos de propriedades, então repete o de cada modo */
+    private static final String SERVLET_EXCLUDE = "org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration";
+    private static final String REACTIVE_EXCLUDE = "org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration";
+
+    private BenchmarkApplication() {
+    }
+
+    public static ConfigurableApplicationContext start(String... properties) {
+        return run(WebApplicationType.NONE, properties);
+    }
+
+    /* com o Tomcat numa porta livre, informada em local.server.port */
+    public static ConfigurableApplicationContext startWeb(String... properties) {
+        return runOnFreePort(WebApplicationType.SERVLET, properties);
+    }
+
+    /* API reativa (/reactive/api) no Netty, também numa porta livre */
+    public static ConfigurableApplicationContext startReactive(String... properties) {
+        List<String> args = new ArrayList<>(List.of(properties));
+        args.add("spring.profiles.active=reactive");
+        return runOnFreePort(WebApplicationType.REACTIVE, args.toArray(new String[0]));
+    }
+
+    private static ConfigurableApplicationContext runOnFreePort(WebApplicationType webApplicationType, String... properties) {
+        List<String> args = new ArrayList<>(List.of(properties));
+        args.add("server.port=0");
+        return run(webApplicationType, args.toArray(new String[0]));
+    }
+
+    private static ConfigurableApplicationContext run(WebApplicationType webApplicationType, String... properties) {
+        /* o restart do devtools só lê a propriedade de sistema e reexecutaria o main de quem chamou */
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.devtools.restart.enabled=false",
+                "--spring.main.banner-mode=off",
+                "--spring.autoconfigure.exclude=" + DEVTOOLS_DATASOURCE + ","
+                        + (webApplicationType == WebApplicationType.REACTIVE ? REACTIVE_EXCLUDE : SERVLET_EXCLUDE),
+                "--logging.level.root=WARN",
+                "--logging.file.name=target/benchmark.log"
+        ));
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+        return new SpringApplicationBuilder(LibraryapiApplication.class)
+                .web(webApplicationType)
+                .run(args.toArray(new String[0]));
+    }
+
+    public static void seedBooks(ConfigurableApplicationContext context, int size) {
+        BookRepository bookRepository = context.getBean(BookRepository.class);
+        List<Book> chunk = new ArrayList<>(SEED_CHUNK);
+        for (int i = 0; i < size; i++) {
+            chunk.add(Book.builder()
+                    .title("Title " + i)
+                    .author("Author " + (i % 997))
+                    .isbn("seed-" + i)
+                    .build());
+            if (chunk.size() == SEED_CHUNK) {
+                bookRepository.saveAll(chunk);
+                chunk.clear();
+            }
+        }
+        bookRepository.saveAll(chunk);
+    }
+
+    /*
+     * Um empréstimo para cada um dos primeiros livros (até size); um terço deles fica em aberto.
+     */
+    public static void seedLoans(ConfigurableApplicationContext context, int size) {
+        BookRepository bookRepository = context.getBean(BookRepository.class);
+        LoanRepository loanRepository = context.getBean(LoanRepository.class);
+        List<Book> books = bookRepository.findAll(PageRequest.of(0, size, Sort.by("id"))).getContent();
+        List<Loan> chunk = new ArrayList<>(SEED_CHUNK);
+        for (int i = 0; i < books.size(); i++) {
+            chunk.add(Loan.builder()
+                    .book(books.get(i))
+                    .customer("Customer " + (i % 1000))
+                    .customerEmail("customer" + (i % 1000) + "@email.com")
+                    .loanDate(LocalDate.now().minusDays(i % 10))
+                    .dueDate(LocalDate.now().minusDays(i % 10).plusDays(3))
+                    .returned(i % 3 != 0)
+                    .build());
+            if (chunk.size() == SEED_CHUNK) {
+                loanRepository.saveAll(chunk);
+                chunk.clear();
+            }
+        }
+        loanRepository.saveAll(chunk);
+    }
+}
@@ -0,0 +1,76 @@
+package com.joaovictor.libraryapi.benchmark;
+
+import com.joaovictor.libraryapi.model.entity.Book;
+import com.joaovictor.libraryapi.service.BookService;
+import com.joaovictor.libraryapi.service.impl.BookSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * BookServiceImpl.find sobre o catálogo semeado: título e autor pelo BookSearchIndex (searchIndex=true)
+ * ou pela consulta por Example com CONTAINING e ignore case (searchIndex=false). O isbn sempre vai ao banco.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BookFindBenchmark {
+
+    @Param({"10000"})
+    public int datasetSize;
+
+    @Param({"true", "false"})
+    public boolean searchIndex;
+
+    private ConfigurableApplicationContext context;
+    private BookService bookService;
+    private final Pageable pageRequest = PageRequest.of(0, 20);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("application.book.search-index.enabled=" + searchIndex);
+        BenchmarkApplication.seedBooks(context, datasetSize);
+        /* a semeadura grava direto no repositório */
+        context.getBean(BookSearchIndex.class).rebuild();
+        bookService = context.getBean(BookService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<Book> findByAuthor() {
+        return bookService.find(Book.builder().author("author 42").build(), pageRequest);
+    }
+
+    @Benchmark
+    public Page<Book> findByTitleAndAuthor() {
+        return bookService.find(Book.builder().title("TITLE 1").author("Author 1").build(), pageRequest);
+    }
+
+    @Benchmark
+    public Page<Book> findByIsbn() {
+        return bookService.find(Book.builder().isbn("seed-" + (datasetSize / 2)).build(), pageRequest);
+    }
+}
@@ -0,0 +1,82 @@
+package com.joaovictor.libraryapi.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.joaovictor.libraryapi.api.resource.BookController;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Vazão de GET /api/books/{id} (BookController.get e serialização do BookDTO, sem o despacho HTTP)
+ * com e sem o cache de segundo nível do Hibernate. springCache=none desliga o @Cacheable do
+ * BookServiceImpl.getById para que toda leitura chegue ao Hibernate.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="BookGet"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(4)
+@Fork(1)
+public class BookGetBenchmark {
+
+    @Param({"10000"})
+    public int datasetSize;
+
+    @Param({"true", "false"})
+    public boolean secondLevelCache;
+
+    @Param({"none", "caffeine"})
+    public String springCache;
+
+    private ConfigurableApplicationContext context;
+    private BookController bookController;
+    private ObjectMapper objectMapper;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(
+                "spring.jpa.properties.hibernate.cache.use_second_level_cache=" + secondLevelCache,
+                "spring.cache.type=" + springCache);
+        BenchmarkApplication.seedBooks(context, datasetSize);
+        bookController = context.getBean(BookController.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        List<Long> bookIds = context.getBean(JdbcTemplate.class).queryForList("select id from book", Long.class);
+        ids = bookIds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] getById() throws JsonProcessingException {
+        long id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+        /* sem If-None-Match: sempre lê o livro e responde 200 */
+        return objectMapper.writeValueAsBytes(bookController.get(id, new ServletWebRequest(new MockHttpServletRequest())).getBody());
+    }
+}
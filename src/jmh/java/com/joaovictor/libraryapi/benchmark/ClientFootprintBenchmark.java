@@ -0,0 +1,168 @@
+package com.joaovictor.libraryapi.benchmark;
+
+import com.sun.management.UnixOperatingSystemMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * clients requisições simultâneas (uma conexão HTTP cada) contra GET /api/books/{id} no Tomcat e
+ * GET /reactive/api/books/{id} no Netty. Além do tempo até a última resposta, informa os picos de
+ * threads, heap usado, descritores abertos e conexões de banco em uso (Hikari ou pool R2DBC).
+ * Cliente e servidor rodam no mesmo processo, então cada conexão conta dois descritores:
+ * 10000 clientes pedem ulimit -n acima de 20000. O JMH soma os contadores das iterações de medição:
+ * divida pelo número de iterações para ter o pico de uma.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="ClientFootprint"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx1g"})
+public class ClientFootprintBenchmark {
+
+    @Param({"servlet", "reactive"})
+    public String stack;
+
+    @Param({"10000"})
+    public int clients;
+
+    @Param({"10000"})
+    public int datasetSize;
+
+    private ConfigurableApplicationContext context;
+    private ConnectionProvider connections;
+    private HttpClient client;
+    private String path;
+    private long[] bookIds;
+    private ScheduledExecutorService sampler;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] properties = {
+                "server.tomcat.max-connections=" + (clients + 1000),
+                "server.tomcat.accept-count=" + clients};
+        context = "reactive".equals(stack)
+                ? BenchmarkApplication.startReactive(properties)
+                : BenchmarkApplication.startWeb(properties);
+        path = "reactive".equals(stack) ? "/reactive/api/books/" : "/api/books/";
+        BenchmarkApplication.seedBooks(context, datasetSize);
+        List<Long> ids = context.getBean(JdbcTemplate.class).queryForList("select id from book", Long.class);
+        bookIds = ids.stream().mapToLong(Long::longValue).toArray();
+
+        connections = ConnectionProvider.builder("footprint")
+                .maxConnections(clients)
+                .pendingAcquireMaxCount(-1)
+                .pendingAcquireTimeout(Duration.ofMinutes(1))
+                .build();
+        client = HttpClient.create(connections)
+                .baseUrl("http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+        sampler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sampler.shutdownNow();
+        connections.disposeLater().block();
+        context.close();
+    }
+
+    @Benchmark
+    public long concurrentGets(Footprint footprint) {
+        ScheduledFuture<?> sampling = sampler.scheduleAtFixedRate(() -> footprint.sample(context), 0, 5, TimeUnit.MILLISECONDS);
+        try {
+            return Flux.range(0, clients)
+                    .flatMap(i -> client.get()
+                            .uri(path + bookIds[i % bookIds.length])
+                            .responseSingle((response, body) -> {
+                                if (response.status().code() != 200) {
+                                    throw new IllegalStateException("HTTP " + response.status().code());
+                                }
+                                return body.asByteArray();
+                            }), clients)
+                    .count()
+                    .block();
+        } finally {
+            sampling.cancel(false);
+            footprint.sample(context);
+        }
+    }
+
+    /* picos por iteração, reportados como métricas secundárias */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+
+        private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+        private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+        public long peakThreads;
+        public long peakHeapMb;
+        public long peakOpenFds;
+        public long peakDbConnections;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            System.gc();
+            peakThreads = 0;
+            peakHeapMb = 0;
+            peakOpenFds = 0;
+            peakDbConnections = 0;
+        }
+
+        synchronized void sample(ConfigurableApplicationContext context) {
+            peakThreads = Math.max(peakThreads, THREADS.getThreadCount());
+            peakHeapMb = Math.max(peakHeapMb, MEMORY.getHeapMemoryUsage().getUsed() / (1024 * 1024));
+            if (ManagementFactory.getOperatingSystemMXBean() instanceof UnixOperatingSystemMXBean) {
+                UnixOperatingSystemMXBean os = (UnixOperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+                peakOpenFds = Math.max(peakOpenFds, os.getOpenFileDescriptorCount());
+            }
+            long db = hikari(context).getHikariPoolMXBean().getActiveConnections();
+            db += context.getBeanProvider(ConnectionPool.class).stream()
+                    .flatMap(pool -> pool.getMetrics().stream()).mapToInt(PoolMetrics::acquiredSize).sum();
+            peakDbConnections = Math.max(peakDbConnections, db);
+        }
+
+        /* o DataSource do contexto é o proxy que conta os comandos SQL */
+        private static HikariDataSource hikari(ConfigurableApplicationContext context) {
+            try {
+                return context.getBean(DataSource.class).unwrap(HikariDataSource.class);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.joaovictor.libraryapi.benchmark;
+
+import com.joaovictor.libraryapi.model.entity.Book;
+import com.joaovictor.libraryapi.service.BookService;
+import com.joaovictor.libraryapi.service.impl.IsbnBloomFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Vazão de inserção de livros com isbns novos, com e sem o filtro de isbns na frente do existsByIsbn.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class IsbnFilterBenchmark {
+
+    @Param({"true", "false"})
+    public boolean filterEnabled;
+
+    @Param({"100000"})
+    public int datasetSize;
+
+    private ConfigurableApplicationContext context;
+    private BookService bookService;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("application.book.isbn-filter.enabled=" + filterEnabled);
+        BenchmarkApplication.seedBooks(context, datasetSize);
+        context.getBean(IsbnBloomFilter.class).rebuild();
+        bookService = context.getBean(BookService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Book saveNewBook() {
+        long n = sequence.incrementAndGet();
+        return bookService.save(Book.builder()
+                .title("Benchmark " + n)
+                .author("Benchmark")
+                .isbn("new-" + n)
+                .build());
+    }
+}
@@ -0,0 +1,265 @@
+package com.joaovictor.libraryapi.benchmark;
+
+import com.joaovictor.libraryapi.service.impl.ZipfSampler;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Driver de carga em Java puro: sobe a aplicação com a massa sintética (application.dataset.*),
+ * dispara uma mistura configurável de chamadas a /api/books e /api/loans por clients threads e grava
+ * vazão e percentis de latência (HdrHistogram) de cada operação no arquivo report. Os livros e os
+ * clientes das chamadas também são sorteados em Zipf. Parâmetros chave=valor, todos opcionais:
+ *
+ * mvn -Pbenchmark test-compile exec:exec@load -Dload.args="books=1000000 loans=3000000 clients=64 duration=120"
+ */
+public final class LoadDriver {
+
+    private static final Map<String, String> DEFAULTS = Map.of(
+            "books", "100000",
+            "loans", "300000",
+            "clients", "32",
+            "warmup", "10",
+            "duration", "60",
+            "mix", "getBook:50,findBooks:20,findLoans:15,bookLoans:10,lend:5",
+            "report", "target/load-report.txt");
+
+    private static final Set<String> OPERATIONS = Set.of("getBook", "findBooks", "findLoans", "bookLoans", "lend");
+    private static final String[] TITLE_WORDS = {"Aventuras", "Segredo", "Cidade", "Viagem", "Noite", "Reino"};
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Map<String, String> args;
+    private final List<Operation> operations = new ArrayList<>();
+    private final int[] cumulativeWeights;
+    private final SplittableRandom seeds = new SplittableRandom(42);
+    private HttpClient client;
+    private String baseUrl;
+    private long[] bookIds;
+    private List<String> isbns;
+    private List<String> customers;
+    private ZipfSampler books;
+    private ZipfSampler readers;
+
+    private LoadDriver(Map<String, String> args) {
+        this.args = args;
+        for (String entry : args.get("mix").split(",")) {
+            String[] nameAndWeight = entry.trim().split(":");
+            if (nameAndWeight.length != 2 || !OPERATIONS.contains(nameAndWeight[0])) {
+                throw new IllegalArgumentException("Operação inválida na mistura (use " + OPERATIONS + " com peso): " + entry);
+            }
+            operations.add(new Operation(nameAndWeight[0], Integer.parseInt(nameAndWeight[1])));
+        }
+        cumulativeWeights = new int[operations.size()];
+        int total = 0;
+        int i = 0;
+        for (Operation operation : operations) {
+            total += operation.weight;
+            cumulativeWeights[i++] = total;
+        }
+    }
+
+    public static void main(String[] argv) throws Exception {
+        Map<String, String> args = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : argv) {
+            int separator = arg.indexOf('=');
+            if (separator < 1) {
+                throw new IllegalArgumentException("Parâmetro inválido (use chave=valor): " + arg);
+            }
+            args.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        new LoadDriver(args).run();
+    }
+
+    private void run() throws Exception {
+        long start = System.nanoTime();
+        ConfigurableApplicationContext context = BenchmarkApplication.startWeb(
+                "application.dataset.books=" + args.get("books"),
+                "application.dataset.loans=" + args.get("loans"),
+                "logging.level.com.joaovictor.libraryapi.service.impl.DatasetServiceImpl=INFO");
+        try {
+            System.out.printf("APPLICATION WITH %s BOOKS AND %s LOANS STARTED IN %d S%n",
+                    args.get("books"), args.get("loans"), TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            bookIds = jdbcTemplate.queryForList("select id from book order by id", Long.class).stream().mapToLong(Long::longValue).toArray();
+            isbns = jdbcTemplate.queryForList("select isbn from book order by id", String.class);
+            customers = jdbcTemplate.queryForList("select distinct customer from loan order by customer", String.class);
+            if (customers.isEmpty()) {
+                customers = List.of("Customer 1");
+            }
+            books = new ZipfSampler(bookIds.length, 1.0);
+            readers = new ZipfSampler(customers.size(), 1.0);
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+            drive(Integer.parseInt(args.get("warmup")));
+            operations.forEach(Operation::reset);
+            long elapsed = drive(Integer.parseInt(args.get("duration")));
+            report(elapsed);
+        } finally {
+            context.close();
+        }
+    }
+
+    /* roda a mistura por seconds segundos e devolve o tempo efetivo em nanos */
+    private long drive(int seconds) throws Exception {
+        int clients = Integer.parseInt(args.get("clients"));
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                SplittableRandom random = seeds.split();
+                futures.add(executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        call(pick(random), random);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private Operation pick(SplittableRandom random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int i = 0;
+        while (value >= cumulativeWeights[i]) {
+            i++;
+        }
+        return operations.get(i);
+    }
+
+    private void call(Operation operation, SplittableRandom random) throws InterruptedException {
+        HttpRequest request = request(operation.name, random);
+        long start = System.nanoTime();
+        int status;
+        try {
+            status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            status = -1;
+        }
+        operation.latencies.recordValue(Math.min(System.nanoTime() - start, MAX_LATENCY_NANOS));
+        /* empréstimo de livro já emprestado é uma recusa esperada (400), não um erro */
+        boolean ok = status >= 200 && status < 300 || "lend".equals(operation.name) && status == 400;
+        (ok ? operation.completed : operation.errors).increment();
+    }
+
+    private HttpRequest request(String operation, SplittableRandom random) {
+        int book = books.sample(random) - 1;
+        String customer = customers.get(readers.sample(random) - 1);
+        switch (operation) {
+            case "getBook":
+                return get("/api/books/" + bookIds[book]);
+            case "findBooks":
+                return get("/api/books?title=" + TITLE_WORDS[random.nextInt(TITLE_WORDS.length)] + "&page=0&size=20");
+            case "findLoans":
+                return get("/api/loans?customer=" + URLEncoder.encode(customer, StandardCharsets.UTF_8) + "&page=0&size=20");
+            case "bookLoans":
+                return get("/api/books/" + bookIds[book] + "/loans?page=0&size=10");
+            case "lend":
+                String body = String.format("{\"isbn\":\"%s\",\"custumer\":\"%s\",\"customerEmail\":\"load@email.com\"}", isbns.get(book), customer);
+                return HttpRequest.newBuilder(URI.create(baseUrl + "/api/loans"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build();
+            default:
+                throw new IllegalArgumentException("Operação desconhecida na mistura: " + operation);
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+    }
+
+    private void report(long elapsedNanos) throws IOException {
+        double seconds = elapsedNanos / 1e9;
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter(text);
+        out.printf("# %s %s%n", LocalDateTime.now(), args);
+        out.printf("%-10s %10s %8s %10s %9s %9s %9s %9s %9s%n",
+                "operation", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        Histogram total = new Histogram(MAX_LATENCY_NANOS, 3);
+        long requests = 0;
+        long errors = 0;
+        for (Operation operation : operations) {
+            Histogram histogram = operation.latencies.getIntervalHistogram();
+            total.add(histogram);
+            requests += operation.completed.sum() + operation.errors.sum();
+            errors += operation.errors.sum();
+            line(out, operation.name, histogram, operation.completed.sum() + operation.errors.sum(), operation.errors.sum(), seconds);
+        }
+        line(out, "total", total, requests, errors, seconds);
+        out.flush();
+
+        Path file = Paths.get(args.get("report"));
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.writeString(file, text.toString(), StandardCharsets.UTF_8);
+        System.out.print(text);
+        System.out.println("REPORT WRITTEN TO " + file.toAbsolutePath());
+    }
+
+    private static void line(PrintWriter out, String name, Histogram histogram, long requests, long errors, double seconds) {
+        out.printf("%-10s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", name, requests, errors, requests / seconds,
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static class Operation {
+
+        final String name;
+        final int weight;
+        final Recorder latencies = new Recorder(MAX_LATENCY_NANOS, 3);
+        final LongAdder completed = new LongAdder();
+        final LongAdder errors = new LongAdder();
+
+        Operation(String name, int weight) {
+            this.name = name;
+            this.weight = weight;
+        }
+
+        void reset() {
+            latencies.reset();
+            completed.reset();
+            errors.reset();
+        }
+    }
+}
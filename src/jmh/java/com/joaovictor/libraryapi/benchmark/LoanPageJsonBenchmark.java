@@ -0,0 +1,87 @@
+package com.joaovictor.libraryapi.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.joaovictor.libraryapi.api.dto.LoanDTO;
+import com.joaovictor.libraryapi.api.mapper.LoanMapper;
+import com.joaovictor.libraryapi.model.entity.Loan;
+import com.joaovictor.libraryapi.model.repository.LoanRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/*
+ * Serialização de Page<LoanDTO> com o ObjectMapper da aplicação, como nas respostas de GET /api/loans.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoanPageJsonBenchmark {
+
+    @Param({"10000"})
+    public int datasetSize;
+
+    @Param({"20", "200"})
+    public int pageSize;
+
+    private ConfigurableApplicationContext context;
+    private ObjectMapper objectMapper;
+    private LoanMapper loanMapper;
+    private Page<Loan> loans;
+    private Page<LoanDTO> page;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        BenchmarkApplication.seedBooks(context, datasetSize);
+        BenchmarkApplication.seedLoans(context, datasetSize);
+        objectMapper = context.getBean(ObjectMapper.class);
+        loanMapper = context.getBean(LoanMapper.class);
+
+        Pageable pageRequest = PageRequest.of(0, pageSize);
+        loans = context.getBean(LoanRepository.class).findAll(pageRequest);
+        page = toDTOPage(loans);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(toDTOPage(loans));
+    }
+
+    private Page<LoanDTO> toDTOPage(Page<Loan> result) {
+        List<LoanDTO> content = result.getContent().stream().map(loanMapper::toDTO).collect(Collectors.toList());
+        return new PageImpl<>(content, result.getPageable(), result.getTotalElements());
+    }
+}
@@ -0,0 +1,96 @@
+package com.joaovictor.libraryapi.benchmark;
+
+import com.joaovictor.libraryapi.exception.BusinessException;
+import com.joaovictor.libraryapi.model.entity.Book;
+import com.joaovictor.libraryapi.model.entity.Loan;
+import com.joaovictor.libraryapi.model.repository.BookRepository;
+import com.joaovictor.libraryapi.service.LoanService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * LoanServiceImpl.save com a verificação de livro já emprestado. Os empréstimos do caminho de sucesso
+ * são gravados como devolvidos para que o mesmo livro continue disponível entre as invocações.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class LoanSaveBenchmark {
+
+    @Param({"10000"})
+    public int datasetSize;
+
+    private ConfigurableApplicationContext context;
+    private LoanService loanService;
+    private final List<Book> availableBooks = new ArrayList<>();
+    private final List<Book> loanedBooks = new ArrayList<>();
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        BenchmarkApplication.seedBooks(context, datasetSize);
+        BenchmarkApplication.seedLoans(context, datasetSize);
+        loanService = context.getBean(LoanService.class);
+        List<Book> books = context.getBean(BookRepository.class)
+                .findAll(PageRequest.of(0, datasetSize, Sort.by("id"))).getContent();
+        /* seedLoans deixa em aberto os empréstimos dos livros de índice múltiplo de 3 */
+        for (int i = 0; i < books.size(); i++) {
+            (i % 3 == 0 ? loanedBooks : availableBooks).add(books.get(i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Loan saveAvailableBook() {
+        Book book = next(availableBooks);
+        return loanService.save(Loan.builder()
+                .book(book)
+                .customer("Benchmark")
+                .loanDate(LocalDate.now())
+                .returned(true)
+                .build());
+    }
+
+    @Benchmark
+    public BusinessException saveLoanedBook() {
+        Book book = next(loanedBooks);
+        try {
+            loanService.save(Loan.builder().book(book).customer("Benchmark").loanDate(LocalDate.now()).build());
+            throw new IllegalStateException("Livro " + book.getId() + " deveria estar emprestado.");
+        } catch (BusinessException e) {
+            return e;
+        }
+    }
+
+    private Book next(List<Book> books) {
+        next = (next + 1) % books.size();
+        return books.get(next);
+    }
+}
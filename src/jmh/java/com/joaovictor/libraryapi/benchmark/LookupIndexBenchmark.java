@@ -0,0 +1,130 @@
+package com.joaovictor.libraryapi.benchmark;
+
+import com.joaovictor.libraryapi.model.entity.Book;
+import com.joaovictor.libraryapi.model.entity.Loan;
+import com.joaovictor.libraryapi.model.repository.BookRepository;
+import com.joaovictor.libraryapi.model.repository.LoanRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/*
+ * Latência das consultas de busca com e sem os índices da migração V2, com o plano de execução
+ * de cada uma impresso no setup. Os dados são gerados direto no H2 (SYSTEM_RANGE): um empréstimo
+ * por livro, apenas os dos últimos 30 dias podem estar em aberto.
+ *
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="LookupIndex -p rows=1000000 -p indexes=true,false"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class LookupIndexBenchmark {
+
+    private static final String[] INDEXES = {"ux_book_isbn", "ix_loan_book_returned", "ix_loan_due_date_returned", "ix_loan_customer"};
+
+    @Param({"1000000", "10000000"})
+    public int rows;
+
+    @Param({"true", "false"})
+    public boolean indexes;
+
+    private ConfigurableApplicationContext context;
+    private BookRepository bookRepository;
+    private LoanRepository loanRepository;
+    private List<Book> books;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        if (!indexes) {
+            for (String index : INDEXES) {
+                jdbcTemplate.execute("drop index " + index);
+            }
+        }
+        jdbcTemplate.update("insert into book (id, title, author, isbn) "
+                + "select x, concat('Title ', x), concat('Author ', mod(x, 997)), concat('isbn-', x) from system_range(1, ?)", rows);
+        jdbcTemplate.update("insert into loan (customer, customer_email, id_book, loan_date, due_date, returned) "
+                + "select concat('Customer ', mod(x, 100000)), concat('customer', mod(x, 100000), '@email.com'), x, "
+                + "dateadd('DAY', -mod(x, 3650), current_date), dateadd('DAY', 3 - mod(x, 3650), current_date), "
+                + "(mod(x, 3650) > 30 or mod(x, 3) <> 0) from system_range(1, ?)", rows);
+        jdbcTemplate.execute("analyze");
+
+        printPlan(jdbcTemplate, "findByIsbn", "select * from book where isbn = 'isbn-42'");
+        printPlan(jdbcTemplate, "existsByBookAndNotReturned",
+                "select count(id) from loan where id_book = 42 and (returned is null or returned = false)");
+        printPlan(jdbcTemplate, "findByBookIsbnOrCustomer",
+                "select l.* from loan l join book b on b.id = l.id_book where b.isbn = 'isbn-42' or l.customer = 'Customer 42'");
+        printPlan(jdbcTemplate, "findOverdueLoans",
+                "select * from loan where due_date < current_date and (returned is null or returned = false)");
+
+        bookRepository = context.getBean(BookRepository.class);
+        loanRepository = context.getBean(LoanRepository.class);
+        books = bookRepository.findAllById(ThreadLocalRandom.current().longs(1024, 1, rows + 1L).boxed().collect(Collectors.toList()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Book> findByIsbn() {
+        return bookRepository.findByIsbn("isbn-" + randomId());
+    }
+
+    @Benchmark
+    public boolean existsByIsbn() {
+        return bookRepository.existsByIsbn("isbn-" + randomId());
+    }
+
+    @Benchmark
+    public boolean existsByBookAndNotReturned() {
+        return loanRepository.existsByBookAndNotReturned(books.get(ThreadLocalRandom.current().nextInt(books.size())));
+    }
+
+    @Benchmark
+    public Page<Loan> findByBookIsbnOrCustomer() {
+        long id = randomId();
+        return loanRepository.findByBookIsbnOrCustomer("isbn-" + id, "Customer " + (id % 100000), PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public List<Loan> findOverdueLoans() {
+        return loanRepository.findOverdueLoans(LocalDate.now());
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, rows + 1L);
+    }
+
+    private static void printPlan(JdbcTemplate jdbcTemplate, String query, String sql) {
+        String plan = jdbcTemplate.queryForList("explain " + sql, String.class).stream().collect(Collectors.joining("\n"));
+        System.out.println("# " + query + "\n" + plan + "\n");
+    }
+}
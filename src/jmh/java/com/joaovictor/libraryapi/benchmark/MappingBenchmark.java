@@ -0,0 +1,121 @@
+package com.joaovictor.libraryapi.benchmark;
+
+import com.joaovictor.libraryapi.api.dto.BookDTO;
+import com.joaovictor.libraryapi.api.dto.LoanDTO;
+import com.joaovictor.libraryapi.api.mapper.BookMapper;
+import com.joaovictor.libraryapi.api.mapper.BookMapperImpl;
+import com.joaovictor.libraryapi.api.mapper.LoanMapper;
+import com.joaovictor.libraryapi.api.mapper.LoanMapperImpl;
+import com.joaovictor.libraryapi.model.entity.Book;
+import com.joaovictor.libraryapi.model.entity.Loan;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Custo de converter livros e uma página de empréstimos para DTO: ModelMapper (como os controllers
+ * faziam antes) contra os mappers gerados pelo MapStruct. Rodar com -prof gc para ver as alocações.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+
+    @Param({"20", "500"})
+    public int pageSize;
+
+    private AnnotationConfigApplicationContext context;
+    private ModelMapper modelMapper;
+    private BookMapper bookMapper;
+    private LoanMapper loanMapper;
+    private Book book;
+    private BookDTO bookDTO;
+    private List<Loan> loans;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext(BookMapperImpl.class, LoanMapperImpl.class);
+        bookMapper = context.getBean(BookMapper.class);
+        loanMapper = context.getBean(LoanMapper.class);
+        modelMapper = new ModelMapper();
+
+        book = Book.builder().id(1L).title("As Aventuras").author("Artur").isbn("001").build();
+        bookDTO = BookDTO.builder().id(1L).title("As Aventuras").author("Artur").isbn("001").build();
+        loans = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            loans.add(Loan.builder()
+                    .id((long) i)
+                    .customer("Fulano " + i)
+                    .customerEmail("fulano" + i + "@email.com")
+                    .book(book)
+                    .loanDate(LocalDate.now())
+                    .returned(false)
+                    .build());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BookDTO bookToDTOModelMapper() {
+        return modelMapper.map(book, BookDTO.class);
+    }
+
+    @Benchmark
+    public BookDTO bookToDTOMapStruct() {
+        return bookMapper.toDTO(book);
+    }
+
+    @Benchmark
+    public Book bookToEntityModelMapper() {
+        return modelMapper.map(bookDTO, Book.class);
+    }
+
+    @Benchmark
+    public Book bookToEntityMapStruct() {
+        return bookMapper.toEntity(bookDTO);
+    }
+
+    @Benchmark
+    public List<LoanDTO> loanPageModelMapper() {
+        List<LoanDTO> page = new ArrayList<>(loans.size());
+        for (Loan loan : loans) {
+            LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
+            loanDTO.setBook(modelMapper.map(loan.getBook(), BookDTO.class));
+            page.add(loanDTO);
+        }
+        return page;
+    }
+
+    @Benchmark
+    public List<LoanDTO> loanPageMapStruct() {
+        List<LoanDTO> page = new ArrayList<>(loans.size());
+        for (Loan loan : loans) {
+            page.add(loanMapper.toDTO(loan));
+        }
+        return page;
+    }
+}
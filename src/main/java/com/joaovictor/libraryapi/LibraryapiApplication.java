@@ -1,26 +1,42 @@
 package com.joaovictor.libraryapi;
 
+import com.joaovictor.libraryapi.service.BookImportService;
+import com.joaovictor.libraryapi.service.DatasetService;
 import com.joaovictor.libraryapi.service.EmailService;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+import java.nio.file.Paths;
 import java.util.List;
 
 @SpringBootApplication
 @EnableScheduling
+@EnableCaching
 public class LibraryapiApplication {
 
 //	@Autowired
 //	private EmailService emailService;
 
 	@Bean
-	public ModelMapper modelMapper() {
-		return new ModelMapper();
+	@ConditionalOnProperty("application.import.csv.file")
+	public CommandLineRunner bookCsvImportRunner(BookImportService bookImportService,
+												 @Value("${application.import.csv.file}") String file) {
+		return args -> bookImportService.importCsv(Paths.get(file));
+	}
+
+	@Bean
+	@ConditionalOnProperty("application.dataset.books")
+	public CommandLineRunner datasetRunner(DatasetService datasetService,
+										   @Value("${application.dataset.books}") int books,
+										   @Value("${application.dataset.loans:0}") long loans) {
+		return args -> datasetService.generate(books, loans);
 	}
 
 //	@Bean
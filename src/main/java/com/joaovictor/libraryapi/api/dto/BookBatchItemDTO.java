@@ -0,0 +1,23 @@
+package com.joaovictor.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookBatchItemDTO {
+
+    public enum Status { CREATED, REJECTED }
+
+    private int index;
+    private String isbn;
+    private Long id;
+    private Status status;
+    private List<String> errors;
+}
@@ -0,0 +1,28 @@
+package com.joaovictor.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookBatchResultDTO {
+
+    private int created;
+    private int rejected;
+
+    private List<BookBatchItemDTO> items = new ArrayList<>();
+
+    public void add(BookBatchItemDTO item) {
+        if (item.getStatus() == BookBatchItemDTO.Status.CREATED) {
+            created++;
+        } else {
+            rejected++;
+        }
+        items.add(item);
+    }
+}
@@ -5,6 +5,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDate;
+
 @Data
 @Builder
 @NoArgsConstructor
@@ -16,4 +18,7 @@ public class LoanDTO {
     private String custumer;
     private BookDTO book;
     private String customerEmail;
+    /* prazo em dias na criação do empréstimo; sem ele vale application.loan.default-days */
+    private Integer loanDays;
+    private LocalDate dueDate;
 }
@@ -0,0 +1,18 @@
+package com.joaovictor.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class LoanReturnsDTO {
+
+    private List<Long> ids;
+    private List<String> isbns;
+}
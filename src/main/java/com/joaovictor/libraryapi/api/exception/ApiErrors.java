@@ -17,6 +17,10 @@ public class ApiErrors {
         });
     }
 
+    public ApiErrors(List<String> errors) {
+        this.errors = errors;
+    }
+
     public ApiErrors(BusinessException ex) {
         this.errors = List.of(ex.getMessage());
     }
@@ -0,0 +1,16 @@
+package com.joaovictor.libraryapi.api.mapper;
+
+import com.joaovictor.libraryapi.api.dto.BookDTO;
+import com.joaovictor.libraryapi.model.entity.Book;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring")
+public interface BookMapper {
+
+    BookDTO toDTO(Book book);
+
+    @Mapping(target = "loans", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    Book toEntity(BookDTO bookDTO);
+}
@@ -0,0 +1,27 @@
+package com.joaovictor.libraryapi.api.mapper;
+
+import com.joaovictor.libraryapi.api.dto.BookDTO;
+import com.joaovictor.libraryapi.api.dto.LoanDTO;
+import com.joaovictor.libraryapi.model.entity.Loan;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring", uses = BookMapper.class)
+public interface LoanMapper {
+
+    /* o DTO expõe o cliente como "custumer" e o isbn do livro no primeiro nível */
+    @Mapping(target = "custumer", source = "customer")
+    @Mapping(target = "isbn", source = "book.isbn")
+    @Mapping(target = "loanDays", ignore = true)
+    LoanDTO toDTO(Loan loan);
+
+    /* para listagens em que o livro já é conhecido: não acessa loan.book, que é carregado sob demanda */
+    @Mapping(target = "id", source = "loan.id")
+    @Mapping(target = "custumer", source = "loan.customer")
+    @Mapping(target = "customerEmail", source = "loan.customerEmail")
+    @Mapping(target = "dueDate", source = "loan.dueDate")
+    @Mapping(target = "loanDays", ignore = true)
+    @Mapping(target = "isbn", source = "book.isbn")
+    @Mapping(target = "book", source = "book")
+    LoanDTO toDTO(Loan loan, BookDTO book);
+}
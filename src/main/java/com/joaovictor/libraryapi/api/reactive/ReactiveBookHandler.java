@@ -0,0 +1,70 @@
+package com.joaovictor.libraryapi.api.reactive;
+
+import com.joaovictor.libraryapi.api.dto.BookDTO;
+import com.joaovictor.libraryapi.api.exception.ApiErrors;
+import com.joaovictor.libraryapi.api.mapper.BookMapper;
+import com.joaovictor.libraryapi.model.entity.Book;
+import com.joaovictor.libraryapi.model.repository.ReactiveBookRepository;
+import com.joaovictor.libraryapi.service.BookService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/*
+ * Livros na API reativa: leituras pelo ReactiveBookRepository; o cadastro passa pelo BookService
+ * (fora do event loop) para manter a regra de isbn duplicado e os índices em memória.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveBookHandler {
+
+    private final ReactiveBookRepository bookRepository;
+    private final BookService bookService;
+    private final BookMapper bookMapper;
+    private final Validator validator;
+
+    public Mono<ServerResponse> get(ServerRequest request) {
+        return bookRepository.findById(Long.valueOf(request.pathVariable("id")))
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)))
+                .flatMap(book -> ServerResponse.ok().bodyValue(bookMapper.toDTO(book)));
+    }
+
+    public Mono<ServerResponse> find(ServerRequest request) {
+        Book filter = Book.builder()
+                .title(request.queryParam("title").orElse(null))
+                .author(request.queryParam("author").orElse(null))
+                .isbn(request.queryParam("isbn").orElse(null))
+                .build();
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(bookRepository.find(filter).map(bookMapper::toDTO), BookDTO.class);
+    }
+
+    public Mono<ServerResponse> create(ServerRequest request) {
+        return request.bodyToMono(BookDTO.class)
+                .flatMap(bookDTO -> {
+                    List<String> errors = validator.validate(bookDTO).stream()
+                            .map(ConstraintViolation::getMessage)
+                            .collect(Collectors.toList());
+                    if (!errors.isEmpty()) {
+                        return ServerResponse.badRequest().bodyValue(new ApiErrors(errors));
+                    }
+                    return Mono.fromCallable(() -> bookService.save(bookMapper.toEntity(bookDTO)))
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .flatMap(book -> ServerResponse.status(HttpStatus.CREATED).bodyValue(bookMapper.toDTO(book)));
+                });
+    }
+}
@@ -0,0 +1,54 @@
+package com.joaovictor.libraryapi.api.reactive;
+
+import com.joaovictor.libraryapi.api.dto.LoanDTO;
+import com.joaovictor.libraryapi.api.mapper.LoanMapper;
+import com.joaovictor.libraryapi.model.entity.Loan;
+import com.joaovictor.libraryapi.model.repository.ReactiveBookRepository;
+import com.joaovictor.libraryapi.model.repository.ReactiveLoanRepository;
+import com.joaovictor.libraryapi.service.LoanService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDate;
+
+/*
+ * Empréstimos na API reativa. O empréstimo em si passa pelo LoanService (fora do event loop), que
+ * serializa os empréstimos do mesmo livro e mantém a regra de livro já emprestado.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveLoanHandler {
+
+    private final ReactiveLoanRepository loanRepository;
+    private final ReactiveBookRepository bookRepository;
+    private final LoanService loanService;
+    private final LoanMapper loanMapper;
+
+    public Mono<ServerResponse> find(ServerRequest request) {
+        String isbn = request.queryParam("isbn").orElse(null);
+        String customer = request.queryParam("customer").orElse(null);
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(loanRepository.findByBookIsbnOrCustomer(isbn, customer).map(loanMapper::toDTO), LoanDTO.class);
+    }
+
+    public Mono<ServerResponse> create(ServerRequest request) {
+        return request.bodyToMono(LoanDTO.class)
+                .flatMap(loanDTO -> bookRepository.findByIsbn(loanDTO.getIsbn())
+                        .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Book não encontrado para o isbn informado.")))
+                        .map(book -> Loan.builder().book(book).customer(loanDTO.getCustumer()).loanDate(LocalDate.now())
+                                .dueDate(loanDTO.getLoanDays() == null ? null : LocalDate.now().plusDays(loanDTO.getLoanDays()))
+                                .build()))
+                .flatMap(loan -> Mono.fromCallable(() -> loanService.save(loan)).subscribeOn(Schedulers.boundedElastic()))
+                .flatMap(loan -> ServerResponse.status(HttpStatus.CREATED).bodyValue(loan.getId()));
+    }
+}
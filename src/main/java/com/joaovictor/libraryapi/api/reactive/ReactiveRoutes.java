@@ -0,0 +1,53 @@
+package com.joaovictor.libraryapi.api.reactive;
+
+import com.joaovictor.libraryapi.api.exception.ApiErrors;
+import com.joaovictor.libraryapi.exception.BusinessException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+/*
+ * API reativa em /reactive/api, ativa com spring.main.web-application-type=reactive (profile "reactive").
+ * Sobe no Netty mesmo com o Tomcat no classpath; os controllers MVC só existem na aplicação servlet.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveRoutes {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> reactiveApi(ReactiveBookHandler books, ReactiveLoanHandler loans) {
+        return RouterFunctions.route()
+                .path("/reactive/api", api -> api
+                        .GET("/books/{id}", books::get)
+                        .GET("/books", books::find)
+                        .POST("/books", books::create)
+                        .GET("/loans", loans::find)
+                        .POST("/loans", loans::create))
+                .onError(e -> e instanceof BusinessException || e instanceof ResponseStatusException, ReactiveRoutes::error)
+                .build();
+    }
+
+    /* mesmas respostas do ApplicationControllerAdvice */
+    static Mono<ServerResponse> error(Throwable e, ServerRequest request) {
+        if (e instanceof BusinessException) {
+            return ServerResponse.badRequest().bodyValue(new ApiErrors((BusinessException) e));
+        }
+        ResponseStatusException ex = (ResponseStatusException) e;
+        if (ex.getReason() == null) {
+            return ServerResponse.status(ex.getStatus()).build();
+        }
+        return ServerResponse.status(ex.getStatus()).bodyValue(new ApiErrors(ex));
+    }
+}
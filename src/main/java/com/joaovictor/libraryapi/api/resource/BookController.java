@@ -1,7 +1,18 @@
 package com.joaovictor.libraryapi.api.resource;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.joaovictor.libraryapi.api.dto.BookAvailabilityDTO;
+import com.joaovictor.libraryapi.api.dto.BookBatchItemDTO;
+import com.joaovictor.libraryapi.api.dto.BookBatchResultDTO;
 import com.joaovictor.libraryapi.api.dto.BookDTO;
+import com.joaovictor.libraryapi.api.dto.CursorPageDTO;
 import com.joaovictor.libraryapi.api.dto.LoanDTO;
+import com.joaovictor.libraryapi.api.mapper.BookMapper;
+import com.joaovictor.libraryapi.api.mapper.LoanMapper;
 import com.joaovictor.libraryapi.model.entity.Book;
 import com.joaovictor.libraryapi.model.entity.Loan;
 import com.joaovictor.libraryapi.service.BookService;
@@ -12,28 +23,57 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.ConstraintViolation;
 import javax.validation.Valid;
+import javax.validation.Validator;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/books")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequiredArgsConstructor
 @Tag(name = "Book API")
 @Slf4j
 public class BookController {
 
     private final BookService bookService;
-    private final ModelMapper modelMapper;
+    private final BookMapper bookMapper;
+    private final LoanMapper loanMapper;
     private final LoanService loanService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    @Value("${application.book.batch.chunk-size}")
+    private int batchChunkSize;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -48,7 +88,7 @@ public class BookController {
                 .isbn(bookDTO.getIsbn())
                 .build();*/
         log.info("CREATE A BOOK FOR ISBN: {} ", bookDTO.getIsbn());
-        Book book = this.modelMapper.map(bookDTO, Book.class);
+        Book book = this.bookMapper.toEntity(bookDTO);
 
         book = this.bookService.save(book);
 
@@ -59,17 +99,94 @@ public class BookController {
                 .isbn(book.getIsbn())
                 .build();*/
 
-        return this.modelMapper.map(book, BookDTO.class);
+        return this.bookMapper.toDTO(book);
     }
 
-    @GetMapping("{id}")
+    /*
+     * Os blocos já lidos são gravados à medida que o corpo chega. Se o conteúdo ficar inválido no meio,
+     * os livros lidos até ali são gravados e a resposta indica em que posição a leitura parou.
+     */
+    @PostMapping(value = "batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
     @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "CREATE BOOKS IN BATCH FROM A JSON ARRAY OR NDJSON STREAM")
+    public BookBatchResultDTO createBatch(HttpServletRequest request) throws IOException {
+        log.info("CREATE BOOKS IN BATCH");
+        BookBatchResultDTO result = new BookBatchResultDTO();
+        List<BookDTO> chunk = new ArrayList<>(batchChunkSize);
+        try (MappingIterator<BookDTO> items = objectMapper.readerFor(BookDTO.class).readValues(request.getInputStream())) {
+            while (items.hasNextValue()) {
+                chunk.add(items.nextValue());
+                if (chunk.size() == batchChunkSize) {
+                    saveChunk(chunk, result);
+                    chunk.clear();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            saveChunk(chunk, result);
+            result.add(BookBatchItemDTO.builder()
+                    .index(result.getItems().size())
+                    .status(BookBatchItemDTO.Status.REJECTED)
+                    .errors(List.of("Conteúdo inválido; os livros seguintes não foram lidos."))
+                    .build());
+            return result;
+        }
+        saveChunk(chunk, result);
+        return result;
+    }
+
+    private void saveChunk(List<BookDTO> chunk, BookBatchResultDTO result) {
+        Book[] books = new Book[chunk.size()];
+        List<List<String>> errors = new ArrayList<>(chunk.size());
+        List<Book> validBooks = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            Set<ConstraintViolation<BookDTO>> violations = validator.validate(chunk.get(i));
+            errors.add(violations.stream().map(ConstraintViolation::getMessage).collect(Collectors.toList()));
+            if (violations.isEmpty()) {
+                books[i] = this.bookMapper.toEntity(chunk.get(i));
+                books[i].setId(null);
+                validBooks.add(books[i]);
+            }
+        }
+
+        Set<Book> savedBooks = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (!validBooks.isEmpty()) {
+            savedBooks.addAll(this.bookService.saveAll(validBooks));
+        }
+
+        int offset = result.getItems().size();
+        for (int i = 0; i < chunk.size(); i++) {
+            BookBatchItemDTO item = BookBatchItemDTO.builder().index(offset + i).isbn(chunk.get(i).getIsbn()).build();
+            if (books[i] == null) {
+                item.setStatus(BookBatchItemDTO.Status.REJECTED);
+                item.setErrors(errors.get(i));
+            } else if (savedBooks.contains(books[i])) {
+                item.setStatus(BookBatchItemDTO.Status.CREATED);
+                item.setId(books[i].getId());
+            } else {
+                item.setStatus(BookBatchItemDTO.Status.REJECTED);
+                item.setErrors(List.of("Isbn já cadastrado."));
+            }
+            result.add(item);
+        }
+    }
+
+    /*
+     * ETag forte com a versão do livro. Com If-None-Match, a versão em cache basta para responder 304
+     * sem carregar, mapear ou serializar o livro.
+     */
+    @GetMapping("{id}")
     @Operation(summary = "OBTAINS A BOOK DETAILS BY ID")
-    public BookDTO get(@PathVariable Long id) {
+    public ResponseEntity<BookDTO> get(@PathVariable Long id, WebRequest request) {
         log.info("OBTAINING DETAILS FOR BOOK ID: {} ", id);
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<Long> version = this.bookService.getVersionById(id);
+            if (version.isPresent() && request.checkNotModified(eTag(version.get()))) {
+                return null;
+            }
+        }
         return this.bookService
                 .getById(id)
-                .map(book -> this.modelMapper.map(book, BookDTO.class))
+                .map(book -> ok(book).body(this.bookMapper.toDTO(book)))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
 
     }
@@ -81,44 +198,181 @@ public class BookController {
         this.bookService.delete(book);
     }
 
+    /*
+     * Com If-Match, só atualiza se o livro ainda estiver na versão informada (412 caso contrário).
+     * As alterações vão numa cópia: o livro obtido pode ser a instância guardada no cache "books".
+     */
     @PutMapping("{id}")
-    @ResponseStatus(HttpStatus.OK)
-    public BookDTO update(@PathVariable Long id, @RequestBody BookDTO bookDTO) {
-        return this.bookService.getById(id)
-                .map(book -> {
-                    book.setTitle(bookDTO.getTitle());
-                    book.setAuthor(bookDTO.getAuthor());
-                    this.bookService.update(book);
-                    return modelMapper.map(book, BookDTO.class);
-                })
+    public ResponseEntity<BookDTO> update(@PathVariable Long id, @RequestBody BookDTO bookDTO,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Book book = this.bookService.getById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        if (ifMatch != null && !matches(ifMatch, book.getVersion())) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Book alterado por outra requisição.");
+        }
+        Book changes = Book.builder()
+                .id(book.getId())
+                .title(bookDTO.getTitle())
+                .author(bookDTO.getAuthor())
+                .isbn(book.getIsbn())
+                .version(book.getVersion())
+                .build();
+        Book updatedBook;
+        try {
+            updatedBook = this.bookService.update(changes);
+        } catch (OptimisticLockingFailureException e) {
+            throw new ResponseStatusException(ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT,
+                    "Book alterado por outra requisição.");
+        }
+        return ok(updatedBook).body(bookMapper.toDTO(updatedBook));
     }
 
+    /* o ETag da página combina id e versão de cada livro e o total; 304 dispensa o mapeamento */
     @GetMapping
-    public Page<BookDTO> find(BookDTO bookDTO, Pageable pageRequest) {
-        Book filter = modelMapper.map(bookDTO, Book.class);
+    public ResponseEntity<Page<BookDTO>> find(BookDTO bookDTO, Pageable pageRequest, WebRequest request) {
+        Book filter = bookMapper.toEntity(bookDTO);
         Page<Book> result = this.bookService.find(filter, pageRequest);
+        String eTag = pageETag(result);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
         List<BookDTO> list = result.getContent().stream()
-                .map(entity -> modelMapper.map(entity, BookDTO.class))
+                .map(bookMapper::toDTO)
                 .collect(Collectors.toList());
 
-        return new PageImpl<>(list, pageRequest, result.getTotalElements());
+        return ResponseEntity.ok().eTag(eTag).body(new PageImpl<>(list, pageRequest, result.getTotalElements()));
+    }
+
+    private static ResponseEntity.BodyBuilder ok(Book book) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        return book.getVersion() == null ? response : response.eTag(eTag(book.getVersion()));
+    }
+
+    private static String eTag(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    private static boolean matches(String ifMatch, Long version) {
+        if (ifMatch.trim().equals("*")) {
+            return true;
+        }
+        String eTag = eTag(version);
+        for (String candidate : ifMatch.split(",")) {
+            if (candidate.trim().equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String pageETag(Page<Book> page) {
+        StringBuilder versions = new StringBuilder().append(page.getTotalElements());
+        for (Book book : page.getContent()) {
+            versions.append(',').append(book.getId()).append(':').append(book.getVersion());
+        }
+        return "\"" + DigestUtils.md5DigestAsHex(versions.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    @GetMapping(params = "cursor")
+    @Operation(summary = "FINDS BOOKS WITH KEYSET PAGINATION")
+    public CursorPageDTO<BookDTO> findByCursor(BookDTO bookDTO, @RequestParam String cursor,
+                                               @RequestParam(defaultValue = "20") int size) {
+        Cursor.checkSize(size);
+        Book filter = bookMapper.toEntity(bookDTO);
+        return Cursor.page(this.bookService.findAfter(filter, Cursor.decode(cursor), size), Book::getId, bookMapper::toDTO);
+    }
+
+    @GetMapping("export")
+    @Operation(summary = "EXPORTS THE WHOLE CATALOGUE AS NDJSON OR CSV")
+    public void export(@RequestParam(defaultValue = "ndjson") String format, HttpServletResponse response) throws IOException {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (!csv && !"ndjson".equalsIgnoreCase(format)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Formato de exportação inválido.");
+        }
+        log.info("EXPORTING BOOKS AS {} ", format);
+        response.setContentType(csv ? "text/csv" : MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=books." + (csv ? "csv" : "ndjson"));
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        if (csv) {
+            writer.write("id,title,author,isbn\n");
+            this.bookService.exportAll(book -> writeCsv(writer, book));
+        } else {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(writer);
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            this.bookService.exportAll(book -> writeJson(generator, book));
+            /* catálogo vazio: corpo vazio, sem a quebra de linha final */
+            if (generator.getOutputContext().getEntryCount() > 0) {
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+        }
+        writer.flush();
+    }
+
+    private void writeJson(JsonGenerator generator, BookDTO book) {
+        try {
+            generator.writeStartObject();
+            generator.writeNumberField("id", book.getId());
+            generator.writeStringField("title", book.getTitle());
+            generator.writeStringField("author", book.getAuthor());
+            generator.writeStringField("isbn", book.getIsbn());
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeCsv(Writer writer, BookDTO book) {
+        try {
+            writer.write(String.valueOf(book.getId()));
+            writer.write(',');
+            writeCsvField(writer, book.getTitle());
+            writer.write(',');
+            writeCsvField(writer, book.getAuthor());
+            writer.write(',');
+            writeCsvField(writer, book.getIsbn());
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    /* a existência vem da versão em cache (bookVersions): o índice não distingue livro inexistente de livre */
+    @GetMapping("{id}/availability")
+    @Operation(summary = "CHECKS IF A BOOK IS AVAILABLE FOR LOAN (ANSWERED FROM THE ACTIVE LOAN INDEX)")
+    public BookAvailabilityDTO availability(@PathVariable Long id) {
+        if (this.bookService.getVersionById(id).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        return loanService.isAvailable(id)
+                .map(available -> new BookAvailabilityDTO(id, available))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Índice de empréstimos em carregamento."));
     }
 
     @GetMapping("{id}/loans")
     public Page<LoanDTO> loansByBook(@PathVariable Long id, Pageable pageable) {
         Book book = bookService.getById(id).orElseThrow(() -> new ResponseStatusException((HttpStatus.NOT_FOUND)));
         Page<Loan> result = loanService.getLoansByBook(book, pageable);
+        BookDTO bookDTO = bookMapper.toDTO(book);
         List<LoanDTO> list = result
                 .getContent()
                 .stream()
-                .map(loan -> {
-                    Book loanBook = loan.getBook();
-                    BookDTO loanBookDTO = modelMapper.map(loanBook, BookDTO.class);
-                    LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
-                    loanDTO.setBook(loanBookDTO);
-                    return loanDTO;
-                })
+                .map(loan -> loanMapper.toDTO(loan, bookDTO))
                 .collect(Collectors.toList());
         return new PageImpl<>(list, pageable, result.getTotalElements());
     }
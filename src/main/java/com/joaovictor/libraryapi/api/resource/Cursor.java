@@ -0,0 +1,62 @@
+package com.joaovictor.libraryapi.api.resource;
+
+import com.joaovictor.libraryapi.api.dto.CursorPageDTO;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*
+ * Token opaco de continuação da paginação por chave: "id:<último id>" em Base64 (URL safe).
+ * Um cursor vazio começa do início.
+ */
+final class Cursor {
+
+    static final int MAX_SIZE = 1000;
+
+    private static final String SORT_KEY = "id:";
+
+    private Cursor() {
+    }
+
+    static long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (value.startsWith(SORT_KEY)) {
+                long lastId = Long.parseLong(value.substring(SORT_KEY.length()));
+                if (lastId >= 0) {
+                    return lastId;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // tratado abaixo, junto com os tokens bem formados mas inválidos
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cursor inválido.");
+    }
+
+    static String encode(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((SORT_KEY + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static void checkSize(int size) {
+        if (size < 1 || size > MAX_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Tamanho de página inválido.");
+        }
+    }
+
+    static <E, D> CursorPageDTO<D> page(Slice<E> slice, Function<E, Long> id, Function<E, D> mapper) {
+        List<E> content = slice.getContent();
+        List<D> dtos = content.stream().map(mapper).collect(Collectors.toList());
+        String nextCursor = slice.hasNext() ? encode(id.apply(content.get(content.size() - 1))) : null;
+        return new CursorPageDTO<>(dtos, slice.getSize(), nextCursor);
+    }
+}
@@ -1,16 +1,19 @@
 package com.joaovictor.libraryapi.api.resource;
 
-import com.joaovictor.libraryapi.api.dto.BookDTO;
+import com.joaovictor.libraryapi.api.dto.CursorPageDTO;
 import com.joaovictor.libraryapi.api.dto.LoanDTO;
 import com.joaovictor.libraryapi.api.dto.LoanFilterDTO;
+import com.joaovictor.libraryapi.api.dto.LoanReturnsDTO;
+import com.joaovictor.libraryapi.api.dto.LoanReturnsResultDTO;
 import com.joaovictor.libraryapi.api.dto.ReturnedLoanDTO;
+import com.joaovictor.libraryapi.api.mapper.LoanMapper;
 import com.joaovictor.libraryapi.model.entity.Book;
 import com.joaovictor.libraryapi.model.entity.Loan;
 import com.joaovictor.libraryapi.service.BookService;
 import com.joaovictor.libraryapi.service.LoanService;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -24,19 +27,23 @@ import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/loans")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequiredArgsConstructor
 public class LoanController {
 
     private final LoanService loanService;
     private final BookService bookService;
-    private final ModelMapper modelMapper;
+    private final LoanMapper loanMapper;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public Long create(@RequestBody LoanDTO loanDTO) {
         Book book = bookService.getBookByIsbn(loanDTO.getIsbn())
                 .orElseThrow(() -> new ResponseStatusException( HttpStatus.BAD_REQUEST, "Book não encontrado para o isbn informado." ));
-        Loan entity = Loan.builder().book(book).customer(loanDTO.getCustumer()).loanDate(LocalDate.now()).build();
+        LocalDate today = LocalDate.now();
+        /* sem loanDays o service aplica o prazo padrão */
+        LocalDate dueDate = loanDTO.getLoanDays() == null ? null : today.plusDays(loanDTO.getLoanDays());
+        Loan entity = Loan.builder().book(book).customer(loanDTO.getCustumer()).loanDate(today).dueDate(dueDate).build();
 
         entity = loanService.save(entity);
         return entity.getId();
@@ -45,26 +52,33 @@ public class LoanController {
     @PatchMapping("{id}")
     @ResponseStatus(HttpStatus.OK)
     public void returnBook(@PathVariable Long id, @RequestBody ReturnedLoanDTO dto) {
-        Loan loan = loanService.getById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-        loan.setReturned(dto.isReturned());
-        loanService.update(loan);
+        if (!loanService.returnLoan(id, dto.isReturned())) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+    }
 
+    /* devolução em massa (esvaziamento da caixa de devoluções) por ids de empréstimo e/ou isbns */
+    @PatchMapping("returns")
+    @ResponseStatus(HttpStatus.OK)
+    public LoanReturnsResultDTO returnBooks(@RequestBody LoanReturnsDTO dto) {
+        return new LoanReturnsResultDTO(loanService.returnLoans(dto.getIds(), dto.getIsbns()));
     }
 
     @GetMapping
     @ResponseStatus(HttpStatus.OK)
     public Page<LoanDTO> find(LoanFilterDTO dto, Pageable pageRequest) {
         Page<Loan> result = loanService.find(dto, pageRequest);
-        List<LoanDTO> loans = result.getContent().stream().map(entity -> {
-            Book book = entity.getBook();
-            BookDTO bookDTO = modelMapper.map(book, BookDTO.class);
-            LoanDTO loanDTO = modelMapper.map(entity, LoanDTO.class);
-            loanDTO.setBook(bookDTO);
-            return loanDTO;
-        }).collect(Collectors.toList());
+        List<LoanDTO> loans = result.getContent().stream().map(loanMapper::toDTO).collect(Collectors.toList());
         return new PageImpl<>(loans, pageRequest, result.getTotalElements());
     }
 
+    @GetMapping(params = "cursor")
+    @ResponseStatus(HttpStatus.OK)
+    public CursorPageDTO<LoanDTO> findByCursor(LoanFilterDTO dto, @RequestParam String cursor,
+                                               @RequestParam(defaultValue = "20") int size) {
+        Cursor.checkSize(size);
+        return Cursor.page(loanService.findAfter(dto, Cursor.decode(cursor), size), Loan::getId, loanMapper::toDTO);
+    }
+
 
 }
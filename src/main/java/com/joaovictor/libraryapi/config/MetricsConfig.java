@@ -0,0 +1,33 @@
+package com.joaovictor.libraryapi.config;
+
+import com.joaovictor.libraryapi.model.repository.LoanRepository;
+import com.joaovictor.libraryapi.service.impl.OverdueLoanTracker;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/*
+ * Métricas da aplicação, expostas em /actuator/prometheus. Os métodos dos serviços são medidos pelo
+ * ServiceMetricsAspect e as chamadas aos repositórios pelo spring.data.repository.invocations do
+ * Spring Boot; @Timed fica para timers com nome próprio (job de empréstimos atrasados).
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    /* lê a contagem do OverdueLoanTracker; só consulta o banco enquanto ele não estiver carregado (ou desligado) */
+    @Bean
+    public MeterBinder activeLoansGauge(OverdueLoanTracker overdueLoans, LoanRepository loanRepository) {
+        return registry -> Gauge.builder("library.loans.active",
+                        () -> overdueLoans.isReady() ? overdueLoans.openLoans() : loanRepository.countActiveLoans())
+                .description("Empréstimos em aberto")
+                .register(registry);
+    }
+}
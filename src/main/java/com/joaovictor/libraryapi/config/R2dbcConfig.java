@@ -0,0 +1,78 @@
+package com.joaovictor.libraryapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.util.StringUtils;
+
+/*
+ * Acesso R2DBC da API reativa (profile "reactive"); a aplicação servlet não carrega nada daqui e usa o
+ * DataSource do Spring Boot. Sem spring.r2dbc.url, o driver R2DBC abre o mesmo banco H2 em memória do
+ * DataSource (JPA e Flyway) pelo nome gerado para ele. Sem R2dbcTransactionManager (excluído em
+ * application-reactive.properties), que concorreria com o do JPA; as escritas continuam nos serviços.
+ * O DataSource é declarado aqui porque o Spring Boot deixa de criá-lo quando existe um ConnectionFactory.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class R2dbcConfig {
+
+    private static final String H2_JDBC_PREFIX = "jdbc:h2:";
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool connectionFactory(DataSourceProperties dataSourceProperties,
+                                            @Value("${spring.r2dbc.url:}") String r2dbcUrl,
+                                            @Value("${application.r2dbc.pool.max-size:20}") int maxSize) {
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(target(dataSourceProperties, r2dbcUrl))
+                .maxSize(maxSize)
+                .build());
+    }
+
+    @Bean
+    public DatabaseClient databaseClient(ConnectionFactory connectionFactory) {
+        return DatabaseClient.create(connectionFactory);
+    }
+
+    /* spring.r2dbc.url vale para qualquer banco com driver R2DBC; sem ela, só o H2 do DataSource */
+    private ConnectionFactory target(DataSourceProperties dataSourceProperties, String r2dbcUrl) {
+        if (StringUtils.hasText(r2dbcUrl)) {
+            ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(r2dbcUrl);
+            ConnectionFactoryOptions.Builder builder = options.mutate();
+            if (!options.hasOption(ConnectionFactoryOptions.USER) && dataSourceProperties.determineUsername() != null) {
+                builder.option(ConnectionFactoryOptions.USER, dataSourceProperties.determineUsername());
+            }
+            if (!options.hasOption(ConnectionFactoryOptions.PASSWORD) && dataSourceProperties.determinePassword() != null) {
+                builder.option(ConnectionFactoryOptions.PASSWORD, dataSourceProperties.determinePassword());
+            }
+            return ConnectionFactories.get(builder.build());
+        }
+        String url = dataSourceProperties.determineUrl();
+        if (url == null || !url.startsWith(H2_JDBC_PREFIX)) {
+            throw new IllegalStateException("Informe spring.r2dbc.url para usar a API reativa com " + url);
+        }
+        return new H2ConnectionFactory(H2ConnectionConfiguration.builder()
+                .url(url.substring(H2_JDBC_PREFIX.length()))
+                .username(dataSourceProperties.determineUsername())
+                .password(dataSourceProperties.determinePassword())
+                .build());
+    }
+}
@@ -0,0 +1,53 @@
+package com.joaovictor.libraryapi.config;
+
+import com.joaovictor.libraryapi.exception.BusinessException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/*
+ * Timer com histograma (library.service, tags class/method/exception) para cada método público dos
+ * @Service, e um contador por mensagem de BusinessException (library.business.rejections). O
+ * TimedAspect do Micrometer 1.8 só aceita @Timed por método, por isso o aspecto próprio.
+ */
+@Aspect
+@Component
+public class ServiceMetricsAspect {
+
+    private final MeterRegistry meterRegistry;
+
+    public ServiceMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(public * com.joaovictor.libraryapi.service..*(..)) && @within(org.springframework.stereotype.Service)")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            if (e instanceof BusinessException) {
+                Counter.builder("library.business.rejections")
+                        .description("Operações recusadas por regra de negócio")
+                        .tag("reason", String.valueOf(e.getMessage()))
+                        .register(meterRegistry)
+                        .increment();
+            }
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("library.service")
+                    .description("Latência dos métodos dos serviços")
+                    .tag("class", joinPoint.getTarget().getClass().getSimpleName())
+                    .tag("method", joinPoint.getSignature().getName())
+                    .tag("exception", exception)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+}
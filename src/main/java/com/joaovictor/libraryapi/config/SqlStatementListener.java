@@ -0,0 +1,96 @@
+package com.joaovictor.libraryapi.config;
+
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/*
+ * Recebe cada execução JDBC do DataSource (via datasource-proxy): soma comandos e tempo na requisição
+ * aberta na thread (ver SqlStatementsFilter) e registra as consultas acima do limite com os parâmetros.
+ * Um batch conta como um comando, uma ida ao banco.
+ */
+@Slf4j
+public class SqlStatementListener implements QueryExecutionListener {
+
+    private static final String START = "sqlStatementStart";
+    private static final int MAX_LOGGED_BATCH_ENTRIES = 10;
+
+    private final ThreadLocal<Stats> current = new ThreadLocal<>();
+    private final long slowQueryNanos;
+
+    public SqlStatementListener(Duration slowQueryThreshold) {
+        this.slowQueryNanos = slowQueryThreshold.toNanos();
+    }
+
+    public Stats begin() {
+        Stats stats = new Stats();
+        current.set(stats);
+        return stats;
+    }
+
+    public void end() {
+        current.remove();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        execInfo.addCustomValue(START, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Long start = execInfo.getCustomValue(START, Long.class);
+        long elapsed = start == null ? 0 : System.nanoTime() - start;
+        Stats stats = current.get();
+        if (stats != null) {
+            stats.statements++;
+            stats.nanos += elapsed;
+        }
+        if (elapsed >= slowQueryNanos) {
+            log.warn("SLOW QUERY ({} MS): {} PARAMS {}", TimeUnit.NANOSECONDS.toMillis(elapsed),
+                    queryInfoList.stream().map(QueryInfo::getQuery).collect(Collectors.joining("; ")),
+                    parameters(queryInfoList));
+        }
+    }
+
+    private static String parameters(List<QueryInfo> queryInfoList) {
+        return queryInfoList.stream()
+                .flatMap(query -> query.getParametersList().stream())
+                .limit(MAX_LOGGED_BATCH_ENTRIES)
+                .map(operations -> operations.stream()
+                        .filter(operation -> operation.getArgs() != null && operation.getArgs().length > 1)
+                        .sorted(Comparator.comparingInt(SqlStatementListener::parameterIndex))
+                        .map(operation -> ParameterSetOperation.isSetNullParameterOperation(operation)
+                                ? "null" : String.valueOf(operation.getArgs()[1]))
+                        .collect(Collectors.joining(", ", "[", "]")))
+                .collect(Collectors.joining(", "));
+    }
+
+    private static int parameterIndex(ParameterSetOperation operation) {
+        Object index = operation.getArgs()[0];
+        return index instanceof Integer ? (Integer) index : Integer.MAX_VALUE;
+    }
+
+    /* contadores de uma requisição, acessados só pela thread que a atende */
+    public static class Stats {
+
+        private int statements;
+        private long nanos;
+
+        public int getStatements() {
+            return statements;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.joaovictor.libraryapi.config;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/*
+ * Comandos SQL por requisição: o DataSource passa pelo datasource-proxy, que avisa o
+ * SqlStatementListener a cada execução. Os headers X-SQL-* ficam fora do profile "prod".
+ */
+@Configuration
+public class SqlStatementsConfig {
+
+    @Bean
+    public SqlStatementListener sqlStatementListener(@Value("${application.sql.slow-query-threshold:200ms}") Duration slowQueryThreshold) {
+        return new SqlStatementListener(slowQueryThreshold);
+    }
+
+    /* estático para não antecipar a criação desta configuração; o listener só é obtido ao envolver o DataSource */
+    @Bean
+    public static BeanPostProcessor sqlStatementsDataSourceProxy(ObjectProvider<SqlStatementListener> listener) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource) || bean instanceof ProxyDataSource) {
+                    return bean;
+                }
+                return ProxyDataSourceBuilder.create((DataSource) bean)
+                        .name(beanName)
+                        .listener(listener.getObject())
+                        .build();
+            }
+        };
+    }
+
+    @Bean
+    public SqlStatementsEndpoint sqlStatementsEndpoint() {
+        return new SqlStatementsEndpoint();
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public SqlStatementsFilter sqlStatementsFilter(SqlStatementListener listener, SqlStatementsEndpoint endpoint, Environment environment) {
+        return new SqlStatementsFilter(listener, endpoint, !environment.acceptsProfiles(Profiles.of("prod")));
+    }
+}
@@ -0,0 +1,76 @@
+package com.joaovictor.libraryapi.config;
+
+import lombok.Getter;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * /actuator/sqlstatements: comandos SQL por endpoint ("GET /api/books/{id}"), do que mais executa por
+ * requisição ao que menos. DELETE zera os contadores.
+ */
+@Endpoint(id = "sqlstatements")
+public class SqlStatementsEndpoint {
+
+    private final Map<String, Totals> endpoints = new ConcurrentHashMap<>();
+
+    public void record(String endpoint, int statements, long nanos) {
+        endpoints.computeIfAbsent(endpoint, key -> new Totals()).add(statements, nanos);
+    }
+
+    @ReadOperation
+    public Map<String, Summary> statements() {
+        Map<String, Summary> summaries = new LinkedHashMap<>();
+        endpoints.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), new Summary(entry.getValue())))
+                .sorted(Comparator.comparingDouble((Map.Entry<String, Summary> entry) -> entry.getValue().getStatementsPerRequest()).reversed())
+                .forEach(entry -> summaries.put(entry.getKey(), entry.getValue()));
+        return summaries;
+    }
+
+    @DeleteOperation
+    public void reset() {
+        endpoints.clear();
+    }
+
+    private static class Totals {
+
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder statements = new LongAdder();
+        private final LongAccumulator maxStatements = new LongAccumulator(Math::max, 0);
+        private final LongAdder nanos = new LongAdder();
+
+        void add(int statements, long nanos) {
+            this.requests.increment();
+            this.statements.add(statements);
+            this.maxStatements.accumulate(statements);
+            this.nanos.add(nanos);
+        }
+    }
+
+    @Getter
+    public static class Summary {
+
+        private final long requests;
+        private final long statements;
+        private final double statementsPerRequest;
+        private final long maxStatements;
+        private final double dbTimeMs;
+
+        Summary(Totals totals) {
+            this.requests = totals.requests.sum();
+            this.statements = totals.statements.sum();
+            this.statementsPerRequest = requests == 0 ? 0 : (double) statements / requests;
+            this.maxStatements = totals.maxStatements.get();
+            this.dbTimeMs = totals.nanos.sum() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
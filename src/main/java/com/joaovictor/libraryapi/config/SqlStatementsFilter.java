@@ -0,0 +1,111 @@
+package com.joaovictor.libraryapi.config;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Abre os contadores do SqlStatementListener para a requisição e, ao final, soma-os no endpoint
+ * sqlstatements. Com headers, informa X-SQL-Statements e X-SQL-Time-Ms no momento em que o corpo começa
+ * a ser escrito: comandos executados durante a serialização (lazy loading) só entram no endpoint.
+ */
+public class SqlStatementsFilter extends OncePerRequestFilter {
+
+    static final String STATEMENTS_HEADER = "X-SQL-Statements";
+    static final String TIME_HEADER = "X-SQL-Time-Ms";
+
+    private final SqlStatementListener listener;
+    private final SqlStatementsEndpoint endpoint;
+    private final boolean headers;
+
+    public SqlStatementsFilter(SqlStatementListener listener, SqlStatementsEndpoint endpoint, boolean headers) {
+        this.listener = listener;
+        this.endpoint = endpoint;
+        this.headers = headers;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlStatementListener.Stats stats = listener.begin();
+        StatsHeadersResponse statsResponse = headers ? new StatsHeadersResponse(response, stats) : null;
+        try {
+            filterChain.doFilter(request, statsResponse != null ? statsResponse : response);
+        } finally {
+            listener.end();
+            if (statsResponse != null) {
+                statsResponse.writeHeaders();
+            }
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            if (pattern != null) {
+                endpoint.record(request.getMethod() + " " + pattern, stats.getStatements(), stats.getNanos());
+            }
+        }
+    }
+
+    private static class StatsHeadersResponse extends HttpServletResponseWrapper {
+
+        private final SqlStatementListener.Stats stats;
+        private boolean written;
+
+        StatsHeadersResponse(HttpServletResponse response, SqlStatementListener.Stats stats) {
+            super(response);
+            this.stats = stats;
+        }
+
+        void writeHeaders() {
+            if (written || isCommitted()) {
+                return;
+            }
+            written = true;
+            setHeader(STATEMENTS_HEADER, String.valueOf(stats.getStatements()));
+            setHeader(TIME_HEADER, String.format(Locale.ROOT, "%.3f", stats.getNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1)));
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeaders();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeaders();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeaders();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeHeaders();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeHeaders();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeHeaders();
+            super.sendRedirect(location);
+        }
+    }
+}
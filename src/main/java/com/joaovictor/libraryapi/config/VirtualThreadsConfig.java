@@ -0,0 +1,34 @@
+package com.joaovictor.libraryapi.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.concurrent.Executors;
+
+/*
+ * Modo opcional (application.threads.virtual.enabled=true) em que as requisições do Tomcat e as tarefas
+ * @Scheduled rodam em threads virtuais; o envio de e-mails usa a mesma propriedade no EmailServiceImpl.
+ * Cada requisição ganha sua própria thread virtual, então o limite passa a ser server.tomcat.max-connections
+ * e o pool de conexões do banco, não mais server.tomcat.threads.max.
+ */
+@Configuration
+@ConditionalOnProperty(name = "application.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadsConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-virtual-", 1).factory()));
+    }
+
+    @Bean
+    public TaskScheduler taskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadFactory(Thread.ofVirtual().name("scheduling-virtual-", 1).factory());
+        return scheduler;
+    }
+}
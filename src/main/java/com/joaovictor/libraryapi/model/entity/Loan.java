@@ -28,13 +28,21 @@ public class Loan {
     private String customerEmail;
 
     @JoinColumn(name = "id_book")
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Book book;
 
     @Column
     private LocalDate loanDate;
 
+    /* último dia para devolver sem atraso */
+    @Column
+    private LocalDate dueDate;
+
     @Column
     private Boolean returned;
 
+    @Version
+    @Column
+    private Long version;
+
 }
@@ -0,0 +1,10 @@
+package com.joaovictor.libraryapi.model.repository;
+
+import com.joaovictor.libraryapi.model.entity.Book;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Slice;
+
+public interface BookKeysetRepository {
+
+    Slice<Book> findAfter(Example<Book> example, Long lastId, int size);
+}
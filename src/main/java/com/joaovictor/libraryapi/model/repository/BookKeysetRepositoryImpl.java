@@ -0,0 +1,44 @@
+package com.joaovictor.libraryapi.model.repository;
+
+import com.joaovictor.libraryapi.model.entity.Book;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.convert.QueryByExamplePredicateBuilder;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.List;
+
+/*
+ * Paginação por chave: mesmo filtro do Example usado na busca paginada, acrescido de id > :lastId,
+ * ordenado por id e limitado a size + 1 linhas para saber se existe próxima página sem executar count.
+ */
+@RequiredArgsConstructor
+public class BookKeysetRepositoryImpl implements BookKeysetRepository {
+
+    private final EntityManager entityManager;
+
+    @Override
+    public Slice<Book> findAfter(Example<Book> example, Long lastId, int size) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Book> query = cb.createQuery(Book.class);
+        Root<Book> root = query.from(Book.class);
+
+        Predicate after = cb.greaterThan(root.get("id"), lastId);
+        Predicate filter = QueryByExamplePredicateBuilder.getPredicate(root, cb, example);
+        query.where(filter == null ? after : cb.and(filter, after))
+                .orderBy(cb.asc(root.get("id")));
+
+        List<Book> books = entityManager.createQuery(query)
+                .setMaxResults(size + 1)
+                .getResultList();
+        boolean hasNext = books.size() > size;
+        return new SliceImpl<>(hasNext ? books.subList(0, size) : books, PageRequest.of(0, size), hasNext);
+    }
+}
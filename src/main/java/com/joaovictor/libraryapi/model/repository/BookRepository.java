@@ -2,13 +2,46 @@ package com.joaovictor.libraryapi.model.repository;
 
 import com.joaovictor.libraryapi.model.entity.Book;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository
-public interface BookRepository extends JpaRepository<Book, Long> {
+public interface BookRepository extends JpaRepository<Book, Long>, BookKeysetRepository {
+
+    /* colunas do livro sem a entidade (sem contexto de persistência nem cache) */
+    interface BookRow {
+        Long getId();
+
+        String getTitle();
+
+        String getAuthor();
+
+        String getIsbn();
+    }
+
     boolean existsByIsbn(String isbn);
 
     Optional<Book> findByIsbn(String isbn);
+
+    @Query(value = "select b.version from Book b where b.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query(value = "select b.isbn from Book b")
+    Stream<String> streamAllIsbns();
+
+    @Query(value = "select b.isbn from Book b where b.isbn in :isbns")
+    Set<String> findExistingIsbns(@Param("isbns") Collection<String> isbns);
+
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query(value = "select b.id as id, b.title as title, b.author as author, b.isbn as isbn from Book b order by b.id")
+    Stream<BookRow> streamAllRows();
 }
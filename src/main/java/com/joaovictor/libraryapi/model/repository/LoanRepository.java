@@ -5,25 +5,105 @@ import com.joaovictor.libraryapi.model.entity.Loan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface LoanRepository extends JpaRepository<Loan, Long> {
 
+    /* id, livro, prazo e e-mail do cliente de um empréstimo, sem carregar a entidade */
+    interface LoanRef {
+        Long getId();
+
+        Long getBookId();
+
+        LocalDate getDueDate();
+
+        String getCustomerEmail();
+    }
+
+    /* o que o resumo de atrasados de um cliente mostra de cada empréstimo */
+    interface OverdueLoanView {
+        String getCustomer();
+
+        String getCustomerEmail();
+
+        String getTitle();
+
+        LocalDate getDueDate();
+    }
+
     @Query(value = "select case when (count(l.id) > 0) then true else false end from Loan l where l.book = :book and ( l.returned is null or l.returned is false )")
     boolean existsByBookAndNotReturned(@Param("book") Book book);
 
-    @Query(value = "select l from Loan as l join l.book as b where b.isbn = :isbn or l.customer = :customer")
+    @Query(value = "select l from Loan as l join fetch l.book as b where b.isbn = :isbn or l.customer = :customer",
+            countQuery = "select count(l) from Loan as l join l.book as b where b.isbn = :isbn or l.customer = :customer")
     Page<Loan> findByBookIsbnOrCustomer(@Param("isbn") String isbn, @Param("customer") String customer, Pageable pageRequest);
 
+    @Query(value = "select l from Loan as l join fetch l.book as b where ( b.isbn = :isbn or l.customer = :customer ) and l.id > :lastId order by l.id")
+    Slice<Loan> findByBookIsbnOrCustomerAfter(@Param("isbn") String isbn, @Param("customer") String customer,
+                                              @Param("lastId") Long lastId, Pageable pageRequest);
+
     Page<Loan> findByBook(Book book, Pageable pageable);
 
-    @Query(value = "select l from Loan as l where l.loanDate <= :threeDaysAgo and ( l.returned is null or l.returned is false )")
-    List<Loan> findByLoansDateLessThanAndNotReturned(@Param("threeDaysAgo") LocalDate threeDaysAgo);
+    /* atrasado: em aberto e com o prazo anterior a today */
+    @Query(value = "select l from Loan as l where l.dueDate < :today and ( l.returned is null or l.returned is false )")
+    List<Loan> findOverdueLoans(@Param("today") LocalDate today);
+
+    /* ordenado pelo e-mail normalizado, para agrupar os atrasados de cada cliente sem carregar tudo */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query(value = "select l.customer as customer, l.customerEmail as customerEmail, b.title as title, l.dueDate as dueDate "
+            + "from Loan as l join l.book as b where l.dueDate < :today and ( l.returned is null or l.returned is false ) "
+            + "and l.customerEmail is not null order by lower(trim(l.customerEmail)), l.dueDate, l.id")
+    Stream<OverdueLoanView> streamOverdueLoanViews(@Param("today") LocalDate today);
+
+    /* os mesmos atrasados, só dos ids informados (obtidos do OverdueLoanTracker) */
+    @Query(value = "select l.customer as customer, l.customerEmail as customerEmail, b.title as title, l.dueDate as dueDate "
+            + "from Loan as l join l.book as b where l.id in :ids and l.dueDate < :today and ( l.returned is null or l.returned is false ) "
+            + "and l.customerEmail is not null order by lower(trim(l.customerEmail)), l.dueDate, l.id")
+    List<OverdueLoanView> findOverdueLoanViewsByIds(@Param("ids") Collection<Long> ids, @Param("today") LocalDate today);
+
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query(value = "select l.book.id from Loan as l where l.returned is null or l.returned is false")
+    Stream<Long> streamActiveLoanBookIds();
+
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query(value = "select l.id as id, l.book.id as bookId, l.dueDate as dueDate, l.customerEmail as customerEmail from Loan as l where l.returned is null or l.returned is false")
+    Stream<LoanRef> streamOpenLoanRefs();
+
+    @Query(value = "select count(l.id) from Loan as l where l.returned is null or l.returned is false")
+    long countActiveLoans();
+
+    @Query(value = "select l.id as id, l.book.id as bookId, l.dueDate as dueDate, l.customerEmail as customerEmail from Loan as l where l.id = :id")
+    Optional<LoanRef> findRefById(@Param("id") Long id);
+
+    @Query(value = "select l.id as id, l.book.id as bookId, l.dueDate as dueDate, l.customerEmail as customerEmail from Loan as l where l.id in :ids and ( l.returned is null or l.returned is false )")
+    List<LoanRef> findOpenLoanRefsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "select l.id as id, l.book.id as bookId, l.dueDate as dueDate, l.customerEmail as customerEmail from Loan as l where l.book.isbn in :isbns and ( l.returned is null or l.returned is false )")
+    List<LoanRef> findOpenLoanRefsByIsbns(@Param("isbns") Collection<String> isbns);
+
+    /* as atualizações em massa incrementam a versão à mão: o @Version só é tratado pelo Hibernate no save */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "update Loan as l set l.returned = :returned, l.version = l.version + 1 where l.id = :id and ( l.returned is null or l.returned <> :returned )")
+    int updateReturned(@Param("id") Long id, @Param("returned") boolean returned);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "update Loan as l set l.returned = true, l.version = l.version + 1 where l.id in :ids and ( l.returned is null or l.returned is false )")
+    int returnByIds(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,88 @@
+package com.joaovictor.libraryapi.model.repository;
+
+import com.joaovictor.libraryapi.model.entity.Book;
+import io.r2dbc.spi.Row;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/*
+ * Consultas de BookRepository sobre R2DBC. find segue a semântica do Example de BookServiceImpl
+ * (título e autor contendo o texto, sem diferenciar maiúsculas; isbn exato) e entrega as linhas
+ * conforme a demanda do assinante.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveBookRepository {
+
+    private static final String COLUMNS = "select id, title, author, isbn, version from book";
+
+    private final DatabaseClient databaseClient;
+
+    public Mono<Book> findById(Long id) {
+        return databaseClient.sql(COLUMNS + " where id = :id")
+                .bind("id", id)
+                .map(ReactiveBookRepository::toBook)
+                .one();
+    }
+
+    public Mono<Book> findByIsbn(String isbn) {
+        return databaseClient.sql(COLUMNS + " where isbn = :isbn")
+                .bind("isbn", isbn)
+                .map(ReactiveBookRepository::toBook)
+                .one();
+    }
+
+    public Mono<Boolean> existsByIsbn(String isbn) {
+        return databaseClient.sql("select count(id) from book where isbn = :isbn")
+                .bind("isbn", isbn)
+                .map(row -> row.get(0, Long.class) > 0)
+                .one();
+    }
+
+    public Flux<Book> find(Book filter) {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        StringJoiner where = new StringJoiner(" and ", " where ", "").setEmptyValue("");
+        if (filter.getTitle() != null) {
+            where.add("lower(title) like :title");
+            parameters.put("title", contains(filter.getTitle()));
+        }
+        if (filter.getAuthor() != null) {
+            where.add("lower(author) like :author");
+            parameters.put("author", contains(filter.getAuthor()));
+        }
+        if (filter.getIsbn() != null) {
+            where.add("isbn = :isbn");
+            parameters.put("isbn", filter.getIsbn());
+        }
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(COLUMNS + where + " order by id");
+        for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+            spec = spec.bind(parameter.getKey(), parameter.getValue());
+        }
+        return spec.map(ReactiveBookRepository::toBook).all();
+    }
+
+    static Book toBook(Row row) {
+        return Book.builder()
+                .id(row.get("id", Long.class))
+                .title(row.get("title", String.class))
+                .author(row.get("author", String.class))
+                .isbn(row.get("isbn", String.class))
+                .version(row.get("version", Long.class))
+                .build();
+    }
+
+    private static String contains(String text) {
+        String escaped = text.toLowerCase(Locale.ROOT).replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+}
@@ -0,0 +1,67 @@
+package com.joaovictor.libraryapi.model.repository;
+
+import com.joaovictor.libraryapi.model.entity.Book;
+import com.joaovictor.libraryapi.model.entity.Loan;
+import io.r2dbc.spi.Row;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/*
+ * Consultas de LoanRepository sobre R2DBC, com o livro de cada empréstimo lido no mesmo join.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveLoanRepository {
+
+    private static final String COLUMNS = "select l.id, l.customer, l.customer_email, l.loan_date, l.due_date, l.returned, l.version, "
+            + "b.id as book_id, b.title, b.author, b.isbn, b.version as book_version from loan l join book b on b.id = l.id_book";
+
+    private final DatabaseClient databaseClient;
+
+    public Flux<Loan> findByBookIsbnOrCustomer(String isbn, String customer) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(COLUMNS + " where b.isbn = :isbn or l.customer = :customer order by l.id");
+        spec = isbn == null ? spec.bindNull("isbn", String.class) : spec.bind("isbn", isbn);
+        spec = customer == null ? spec.bindNull("customer", String.class) : spec.bind("customer", customer);
+        return spec.map(ReactiveLoanRepository::toLoan).all();
+    }
+
+    public Flux<Loan> findByBook(Long bookId) {
+        return databaseClient.sql(COLUMNS + " where l.id_book = :bookId order by l.id")
+                .bind("bookId", bookId)
+                .map(ReactiveLoanRepository::toLoan)
+                .all();
+    }
+
+    public Mono<Boolean> existsByBookAndNotReturned(Long bookId) {
+        return databaseClient.sql("select count(id) from loan where id_book = :bookId and (returned is null or returned = false)")
+                .bind("bookId", bookId)
+                .map(row -> row.get(0, Long.class) > 0)
+                .one();
+    }
+
+    static Loan toLoan(Row row) {
+        return Loan.builder()
+                .id(row.get("id", Long.class))
+                .customer(row.get("customer", String.class))
+                .customerEmail(row.get("customer_email", String.class))
+                .loanDate(row.get("loan_date", LocalDate.class))
+                .dueDate(row.get("due_date", LocalDate.class))
+                .returned(row.get("returned", Boolean.class))
+                .version(row.get("version", Long.class))
+                .book(Book.builder()
+                        .id(row.get("book_id", Long.class))
+                        .title(row.get("title", String.class))
+                        .author(row.get("author", String.class))
+                        .isbn(row.get("isbn", String.class))
+                        .version(row.get("book_version", Long.class))
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,25 @@
+package com.joaovictor.libraryapi.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportReport {
+
+    private long rows;
+    private long imported;
+    private long invalid;
+    private long duplicated;
+    private long failed;
+    private long elapsedMillis;
+    private long peakHeapBytes;
+
+    public double getRowsPerSecond() {
+        return elapsedMillis == 0 ? rows : rows * 1000.0 / elapsedMillis;
+    }
+}
@@ -0,0 +1,9 @@
+package com.joaovictor.libraryapi.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public interface BookImportService {
+
+    BookImportReport importCsv(Path file) throws IOException;
+}
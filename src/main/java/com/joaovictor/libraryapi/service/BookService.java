@@ -1,22 +1,34 @@
 package com.joaovictor.libraryapi.service;
 
+import com.joaovictor.libraryapi.api.dto.BookDTO;
 import com.joaovictor.libraryapi.model.entity.Book;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface BookService {
 
     Book save(Book book);
 
+    List<Book> saveAll(List<Book> books);
+
     Optional<Book> getById(Long id);
 
+    Optional<Long> getVersionById(Long id);
+
     void delete(Book book);
 
     Book update(Book book);
 
     Page<Book> find(Book filter, Pageable pageRequest);
 
+    Slice<Book> findAfter(Book filter, Long lastId, int size);
+
     Optional<Book> getBookByIsbn(String isbn);
+
+    void exportAll(Consumer<BookDTO> consumer);
 }
@@ -0,0 +1,25 @@
+package com.joaovictor.libraryapi.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DatasetReport {
+
+    private long books;
+    private long loans;
+    private long openLoans;
+    private long overdueLoans;
+    private long customers;
+    private long elapsedMillis;
+
+    public double getRowsPerSecond() {
+        long rows = books + loans;
+        return elapsedMillis == 0 ? rows : rows * 1000.0 / elapsedMillis;
+    }
+}
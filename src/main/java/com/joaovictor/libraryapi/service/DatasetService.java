@@ -0,0 +1,6 @@
+package com.joaovictor.libraryapi.service;
+
+public interface DatasetService {
+
+    DatasetReport generate(int books, long loans);
+}
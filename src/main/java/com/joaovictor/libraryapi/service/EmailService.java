@@ -1,7 +1,11 @@
 package com.joaovictor.libraryapi.service;
 
+import org.springframework.mail.SimpleMailMessage;
+
 import java.util.List;
 
 public interface EmailService {
     void sendEmails(List<String> mailsList, String message);
+
+    void sendMessages(List<SimpleMailMessage> messages);
 }
@@ -6,9 +6,12 @@ import com.joaovictor.libraryapi.model.entity.Book;
 import com.joaovictor.libraryapi.model.entity.Loan;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface LoanService {
     Loan save( Loan loan );
@@ -17,10 +20,20 @@ public interface LoanService {
 
     Loan update(Loan loan);
 
+    boolean returnLoan(Long id, boolean returned);
+
+    long returnLoans(Collection<Long> loanIds, Collection<String> isbns);
+
     Page<Loan> find(LoanFilterDTO filterDTO, Pageable pageable);
 
+    Slice<Loan> findAfter(LoanFilterDTO filterDTO, Long lastId, int size);
+
     Page<Loan> getLoansByBook(Book book, Pageable pageable);
 
     List<Loan> getAllLateLoans();
 
+    void forEachOverdueDigestChunk(int chunkSize, Consumer<List<OverdueDigest>> consumer);
+
+    Optional<Boolean> isAvailable(Long bookId);
+
 }
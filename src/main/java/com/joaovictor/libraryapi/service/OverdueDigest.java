@@ -0,0 +1,26 @@
+package com.joaovictor.libraryapi.service;
+
+import com.joaovictor.libraryapi.model.repository.LoanRepository;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Locale;
+
+/* todos os empréstimos atrasados de um cliente, para um único e-mail */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OverdueDigest {
+    private String customer;
+    private String customerEmail;
+    private List<LoanRepository.OverdueLoanView> loans;
+
+    /* clientes são identificados pelo e-mail sem espaços e sem distinção de maiúsculas */
+    public static String customerKey(String customerEmail) {
+        return customerEmail == null ? null : customerEmail.trim().toLowerCase(Locale.ROOT);
+    }
+}
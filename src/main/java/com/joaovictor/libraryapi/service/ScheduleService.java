@@ -1,36 +1,55 @@
 package com.joaovictor.libraryapi.service;
 
-import com.joaovictor.libraryapi.model.entity.Loan;
+import com.joaovictor.libraryapi.model.repository.LoanRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.SimpleMailMessage;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.stream.Collector;
+import java.time.format.DateTimeFormatter;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class ScheduleService {
 
     private static final String CRON_LATE_LOANS = "0 0 0 1/1 * ?";
+    private static final String DIGEST_SUBJECT = "Livros com empréstimo atrasado";
+    private static final DateTimeFormatter DUE_DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
 
     @Value("${application.mail.lateloans.message}")
     private String message;
 
+    @Value("${application.mail.lateloans.chunk-size}")
+    private int chunkSize;
+
     private final LoanService loanService;
     private final EmailService emailService;
 
 
     @Scheduled(cron = CRON_LATE_LOANS)
+    @Timed(value = "library.lateloans.job", description = "Duração do envio de e-mails aos empréstimos atrasados", histogram = true)
     public void senMailToLateLoans(){
-        List<Loan> allLateLoans = loanService.getAllLateLoans();
-        List<String> mailsList = allLateLoans.stream()
-                .map(loan -> loan.getCustomerEmail())
-                .collect(Collectors.toList());
+        /* um e-mail por cliente (chunk-size clientes por bloco), com todos os livros atrasados dele */
+        loanService.forEachOverdueDigestChunk(chunkSize, digests ->
+                emailService.sendMessages(digests.stream().map(this::toMailMessage).collect(Collectors.toList())));
+    }
 
-        emailService.sendEmails(mailsList, message);
+    private SimpleMailMessage toMailMessage(OverdueDigest digest) {
+        StringBuilder text = new StringBuilder(message).append("\n");
+        for (LoanRepository.OverdueLoanView loan : digest.getLoans()) {
+            text.append("\n- ").append(loan.getTitle())
+                    .append(" (prazo: ").append(DUE_DATE_FORMAT.format(loan.getDueDate())).append(")");
+        }
+        SimpleMailMessage mailMessage = new SimpleMailMessage();
+        mailMessage.setTo(digest.getCustomerEmail());
+        mailMessage.setSubject(DIGEST_SUBJECT);
+        mailMessage.setText(text.toString());
+        return mailMessage;
     }
 }
@@ -0,0 +1,152 @@
+package com.joaovictor.libraryapi.service.impl;
+
+import com.joaovictor.libraryapi.model.repository.LoanRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/*
+ * Bitmap dos ids de livros com empréstimo em aberto, em páginas de 64k bits criadas sob demanda.
+ * Um "não emprestado" dispensa a consulta ao banco; um "emprestado" sempre é confirmado no banco,
+ * que prevalece. Durante a reconstrução as alterações são aplicadas também ao bitmap em construção,
+ * de modo que o índice pode ter bits a mais (corrigidos na confirmação), mas nunca bits a menos.
+ */
+@Component
+@Slf4j
+public class ActiveLoanIndex {
+
+    private final LoanRepository loanRepository;
+    private final boolean enabled;
+
+    private volatile Bitmap bitmap = new Bitmap();
+    private volatile Bitmap building;
+    private volatile boolean ready;
+
+    public ActiveLoanIndex(LoanRepository loanRepository,
+                           @Value("${application.loan.active-index.enabled:true}") boolean enabled) {
+        this.loanRepository = loanRepository;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        Bitmap next = new Bitmap();
+        this.building = next;
+        long count = 0;
+        try (Stream<Long> bookIds = loanRepository.streamActiveLoanBookIds()) {
+            for (Long bookId : (Iterable<Long>) bookIds::iterator) {
+                if (bookId != null) {
+                    next.set(bookId);
+                    count++;
+                }
+            }
+        }
+        this.bitmap = next;
+        this.building = null;
+        this.ready = true;
+        log.info("ACTIVE LOAN INDEX LOADED WITH {} LENT BOOKS", count);
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    public boolean mightBeLent(Long bookId) {
+        if (!isReady() || bookId == null) {
+            return true;
+        }
+        return bitmap.get(bookId);
+    }
+
+    public void markLent(Long bookId) {
+        if (!enabled || bookId == null) {
+            return;
+        }
+        /* lê o bitmap em construção antes do atual: ver rebuild() */
+        Bitmap next = building;
+        if (next != null) {
+            next.set(bookId);
+        }
+        bitmap.set(bookId);
+    }
+
+    public void markReturned(Long bookId) {
+        if (!enabled || bookId == null) {
+            return;
+        }
+        Bitmap next = building;
+        if (next != null) {
+            next.clear(bookId);
+        }
+        bitmap.clear(bookId);
+    }
+
+    private static final class Bitmap {
+
+        private static final int PAGE_SHIFT = 16;
+        private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+
+        private volatile AtomicLongArray[] pages = new AtomicLongArray[0];
+
+        boolean get(long id) {
+            AtomicLongArray page = page(id, false);
+            return page != null && (page.get(word(id)) & bit(id)) != 0;
+        }
+
+        void set(long id) {
+            AtomicLongArray page = page(id, true);
+            if (page != null) {
+                page.accumulateAndGet(word(id), bit(id), (current, mask) -> current | mask);
+            }
+        }
+
+        void clear(long id) {
+            AtomicLongArray page = page(id, false);
+            if (page != null) {
+                page.accumulateAndGet(word(id), ~bit(id), (current, mask) -> current & mask);
+            }
+        }
+
+        private AtomicLongArray page(long id, boolean create) {
+            long index = id >>> PAGE_SHIFT;
+            if (id < 0 || index >= Integer.MAX_VALUE) {
+                return null;
+            }
+            AtomicLongArray[] current = pages;
+            if (index < current.length && current[(int) index] != null) {
+                return current[(int) index];
+            }
+            return create ? createPage((int) index) : null;
+        }
+
+        private synchronized AtomicLongArray createPage(int index) {
+            AtomicLongArray[] current = pages;
+            if (index < current.length && current[index] != null) {
+                return current[index];
+            }
+            AtomicLongArray[] grown = index < current.length ? current.clone() : Arrays.copyOf(current, index + 1);
+            grown[index] = new AtomicLongArray((PAGE_MASK + 1) >>> 6);
+            pages = grown;
+            return grown[index];
+        }
+
+        private static int word(long id) {
+            return (int) (id & PAGE_MASK) >>> 6;
+        }
+
+        private static long bit(long id) {
+            return 1L << (id & 63);
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package com.joaovictor.libraryapi.service.impl;
+
+import com.joaovictor.libraryapi.model.entity.Book;
+import com.joaovictor.libraryapi.service.BookImportReport;
+import com.joaovictor.libraryapi.service.BookImportService;
+import com.joaovictor.libraryapi.service.BookService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Importa livros de um CSV (title,author,isbn) mapeando o arquivo em memória. O arquivo é dividido em
+ * pedaços alinhados em quebras de linha, processados em paralelo num ForkJoinPool. Os campos de cada
+ * linha são localizados por offsets e só viram String depois que a linha é validada. Um isbn repetido
+ * é descartado dentro do lote; entre lotes, quem descarta é o BookService (findExistingIsbns) e, na
+ * corrida entre pedaços, o índice único ux_book_isbn (ver flush), sem guardar os isbns do arquivo todo.
+ * Campos entre aspas não podem conter quebras de linha (a divisão é feita por linha): essas linhas
+ * contam como inválidas.
+ */
+@Service
+@Slf4j
+public class BookCsvImportServiceImpl implements BookImportService {
+
+    private static final int FIELDS = 3;
+    private static final int TITLE = 0;
+    private static final int AUTHOR = 1;
+    private static final int ISBN = 2;
+
+    private final BookService bookService;
+    private final long chunkSize;
+    private final int batchSize;
+    private final int parallelism;
+    private final boolean skipHeader;
+
+    public BookCsvImportServiceImpl(BookService bookService,
+                                    @Value("${application.import.csv.chunk-size:67108864}") long chunkSize,
+                                    @Value("${application.import.csv.batch-size:1000}") int batchSize,
+                                    @Value("${application.import.csv.parallelism:0}") int parallelism,
+                                    @Value("${application.import.csv.skip-header:true}") boolean skipHeader) {
+        this.bookService = bookService;
+        this.chunkSize = Math.max(1, Math.min(chunkSize, Integer.MAX_VALUE / 2));
+        this.batchSize = batchSize;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.skipHeader = skipHeader;
+    }
+
+    @Override
+    public BookImportReport importCsv(Path file) throws IOException {
+        log.info("IMPORTING BOOKS FROM CSV: {} ", file);
+        resetPeakHeap();
+        long start = System.nanoTime();
+        Counters counters = new Counters();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<long[]> chunks = split(channel);
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new ChunkTask(channel, chunks, 0, chunks.size(), counters));
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        BookImportReport report = BookImportReport.builder()
+                .rows(counters.rows.sum())
+                .imported(counters.imported.sum())
+                .invalid(counters.invalid.sum())
+                .duplicated(counters.duplicated.sum())
+                .failed(counters.failed.sum())
+                .elapsedMillis((System.nanoTime() - start) / 1_000_000)
+                .peakHeapBytes(Math.max(counters.peakHeap.get(), peakHeapPool()))
+                .build();
+        log.info("CSV IMPORT FINISHED: {} ROWS, {} IMPORTED, {} INVALID, {} DUPLICATED, {} FAILED IN {} MS ({} ROWS/S, PEAK HEAP {} MB)",
+                report.getRows(), report.getImported(), report.getInvalid(), report.getDuplicated(), report.getFailed(),
+                report.getElapsedMillis(), Math.round(report.getRowsPerSecond()), report.getPeakHeapBytes() / (1024 * 1024));
+        return report;
+    }
+
+    private List<long[]> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<long[]> chunks = new ArrayList<>();
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(start + chunkSize, size);
+            if (end < size) {
+                end = nextLineStart(channel, end, size);
+            }
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    private long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private void parseChunk(FileChannel channel, long start, long end, Counters counters) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        RowParser parser = new RowParser();
+        List<Book> batch = new ArrayList<>(batchSize);
+        Set<String> batchIsbns = new HashSet<>();
+        boolean header = skipHeader && start == 0;
+        int limit = buffer.limit();
+        int lineStart = 0;
+
+        for (int i = 0; i <= limit; i++) {
+            if (i < limit && buffer.get(i) != '\n') {
+                continue;
+            }
+            int lineEnd = i;
+            if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            if (lineEnd > lineStart) {
+                if (header) {
+                    header = false;
+                } else {
+                    counters.rows.increment();
+                    Book book = parser.parse(buffer, lineStart, lineEnd);
+                    if (book == null) {
+                        counters.invalid.increment();
+                    } else if (!batchIsbns.add(book.getIsbn())) {
+                        counters.duplicated.increment();
+                    } else {
+                        batch.add(book);
+                        if (batch.size() == batchSize) {
+                            flush(batch, counters);
+                            batchIsbns.clear();
+                        }
+                    }
+                }
+            }
+            lineStart = i + 1;
+        }
+        flush(batch, counters);
+    }
+
+    private void flush(List<Book> batch, Counters counters) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            int saved = bookService.saveAll(batch).size();
+            counters.imported.add(saved);
+            counters.duplicated.add(batch.size() - saved);
+        } catch (DataIntegrityViolationException e) {
+            /* isbn gravado por outra importação entre a verificação e o insert: separa o conflito do resto do lote */
+            log.warn("CSV IMPORT BATCH OF {} BOOKS VIOLATED A CONSTRAINT, RETRYING ONE BY ONE: {}", batch.size(), e.getMessage());
+            batch.forEach(book -> saveOne(book, counters));
+        } catch (DataAccessException e) {
+            log.warn("CSV IMPORT BATCH OF {} BOOKS FAILED: {}", batch.size(), e.getMessage());
+            counters.failed.add(batch.size());
+        }
+        batch.clear();
+        counters.peakHeap.accumulate(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+    }
+
+    private void saveOne(Book book, Counters counters) {
+        /* o lote desfeito pode ter deixado id e versão no livro */
+        book.setId(null);
+        book.setVersion(null);
+        try {
+            int saved = bookService.saveAll(List.of(book)).size();
+            counters.imported.add(saved);
+            counters.duplicated.add(1 - saved);
+        } catch (DataIntegrityViolationException e) {
+            counters.duplicated.increment();
+        } catch (DataAccessException e) {
+            log.warn("CSV IMPORT OF BOOK {} FAILED: {}", book.getIsbn(), e.getMessage());
+            counters.failed.increment();
+        }
+    }
+
+    private static void resetPeakHeap() {
+        ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    /* os picos de cada área do heap acontecem em momentos diferentes e não podem ser somados */
+    private static long peakHeapPool() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .max()
+                .orElse(0);
+    }
+
+    private static class Counters {
+        final LongAdder rows = new LongAdder();
+        final LongAdder imported = new LongAdder();
+        final LongAdder invalid = new LongAdder();
+        final LongAdder duplicated = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        /* heap em uso ao fim de cada lote */
+        final LongAccumulator peakHeap = new LongAccumulator(Math::max, 0);
+    }
+
+    private class ChunkTask extends RecursiveAction {
+
+        private final FileChannel channel;
+        private final List<long[]> chunks;
+        private final int from;
+        private final int to;
+        private final Counters counters;
+
+        ChunkTask(FileChannel channel, List<long[]> chunks, int from, int to, Counters counters) {
+            this.channel = channel;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+            this.counters = counters;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ChunkTask(channel, chunks, from, middle, counters),
+                        new ChunkTask(channel, chunks, middle, to, counters));
+            } else if (to - from == 1) {
+                try {
+                    parseChunk(channel, chunks.get(from)[0], chunks.get(from)[1], counters);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    /*
+     * Localiza os campos da linha (aceitando campos entre aspas com "" escapado) sem criar objetos;
+     * as Strings só são criadas para linhas válidas.
+     */
+    static class RowParser {
+
+        private final int[] starts = new int[FIELDS];
+        private final int[] ends = new int[FIELDS];
+        private final boolean[] escaped = new boolean[FIELDS];
+        private byte[] line = new byte[256];
+
+        Book parse(ByteBuffer buffer, int from, int to) {
+            int length = to - from;
+            if (line.length < length) {
+                line = new byte[Math.max(length, line.length * 2)];
+            }
+            for (int i = 0; i < length; i++) {
+                line[i] = buffer.get(from + i);
+            }
+            return parse(length);
+        }
+
+        Book parse(int length) {
+            int field = 0;
+            int i = 0;
+            while (true) {
+                if (field == FIELDS) {
+                    return null;
+                }
+                escaped[field] = false;
+                if (i < length && line[i] == '"') {
+                    int j = i + 1;
+                    while (true) {
+                        if (j >= length) {
+                            return null;
+                        }
+                        if (line[j] == '"') {
+                            if (j + 1 < length && line[j + 1] == '"') {
+                                escaped[field] = true;
+                                j += 2;
+                                continue;
+                            }
+                            break;
+                        }
+                        j++;
+                    }
+                    starts[field] = i + 1;
+                    ends[field] = j;
+                    i = j + 1;
+                    if (i < length && line[i] != ',') {
+                        return null;
+                    }
+                } else {
+                    int j = i;
+                    while (j < length && line[j] != ',') {
+                        /* aspas fora de um campo entre aspas: resto de um campo com quebra de linha */
+                        if (line[j] == '"') {
+                            return null;
+                        }
+                        j++;
+                    }
+                    starts[field] = i;
+                    ends[field] = j;
+                    i = j;
+                }
+                trim(field);
+                field++;
+                if (i >= length) {
+                    break;
+                }
+                i++;
+            }
+
+            if (field != FIELDS || !valid()) {
+                return null;
+            }
+            return Book.builder()
+                    .title(text(TITLE))
+                    .author(text(AUTHOR))
+                    .isbn(text(ISBN))
+                    .build();
+        }
+
+        private void trim(int field) {
+            while (starts[field] < ends[field] && line[starts[field]] == ' ') {
+                starts[field]++;
+            }
+            while (ends[field] > starts[field] && line[ends[field] - 1] == ' ') {
+                ends[field]--;
+            }
+        }
+
+        private boolean valid() {
+            for (int field = 0; field < FIELDS; field++) {
+                if (starts[field] == ends[field]) {
+                    return false;
+                }
+            }
+            for (int i = starts[ISBN]; i < ends[ISBN]; i++) {
+                byte c = line[i];
+                if (!(c >= '0' && c <= '9') && c != '-' && c != 'X' && c != 'x') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private String text(int field) {
+            String value = new String(line, starts[field], ends[field] - starts[field], StandardCharsets.UTF_8);
+            return escaped[field] ? value.replace("\"\"", "\"") : value;
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package com.joaovictor.libraryapi.service.impl;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.joaovictor.libraryapi.model.entity.Book;
+import com.joaovictor.libraryapi.model.repository.BookRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.ObjIntConsumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/*
+ * Índice invertido em memória dos termos de título e autor (minúsculos, sem acentos) para a busca de livros.
+ * Cada termo da consulta casa com os termos do livro que o contêm, como o CONTAINING da consulta por
+ * Example ("ventura" acha "Aventuras"); os termos que contêm o da consulta saem de um índice de trigramas
+ * do vocabulário. Um livro precisa casar todos os termos informados, em qualquer posição, e é ordenado pela
+ * pontuação (termo completo, depois prefixo, depois trecho) e depois pelo id. As listas de cada termo ficam
+ * ordenadas por id, para a paginação por cursor começar após o último id. Durante a reconstrução as
+ * alterações são aplicadas também ao índice em construção, como no ActiveLoanIndex.
+ */
+@Component
+@Slf4j
+public class BookSearchIndex {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int EXACT_SCORE = 3;
+    private static final int PREFIX_SCORE = 2;
+    private static final int INFIX_SCORE = 1;
+    private static final int GRAM = 3;
+
+    private final BookRepository bookRepository;
+    private final boolean enabled;
+
+    private volatile Postings postings = new Postings();
+    private volatile Postings building;
+    private volatile boolean ready;
+
+    public BookSearchIndex(BookRepository bookRepository,
+                           @Value("${application.book.search-index.enabled:true}") boolean enabled) {
+        this.bookRepository = bookRepository;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        Postings next = new Postings();
+        this.building = next;
+        long count = 0;
+        try (Stream<BookRepository.BookRow> books = bookRepository.streamAllRows()) {
+            for (BookRepository.BookRow book : (Iterable<BookRepository.BookRow>) books::iterator) {
+                next.put(book.getId(), book.getTitle(), book.getAuthor());
+                count++;
+            }
+        }
+        this.postings = next;
+        this.building = null;
+        this.ready = true;
+        log.info("BOOK SEARCH INDEX LOADED WITH {} BOOKS", count);
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    public void put(Book book) {
+        if (!enabled || book == null || book.getId() == null) {
+            return;
+        }
+        Postings next = building;
+        if (next != null) {
+            next.put(book.getId(), book.getTitle(), book.getAuthor());
+        }
+        postings.put(book.getId(), book.getTitle(), book.getAuthor());
+    }
+
+    public void remove(Long bookId) {
+        if (!enabled || bookId == null) {
+            return;
+        }
+        Postings next = building;
+        if (next != null) {
+            next.remove(bookId);
+        }
+        postings.remove(bookId);
+    }
+
+    /*
+     * Página do resultado em ordem de relevância: os ids de offset a offset + size e o total dos que casam.
+     * Vazio quando o índice não pode responder (desabilitado, carregando ou sem termos para buscar).
+     * Duas passadas pelos candidatos, sem guardar nem ordenar todos: a primeira conta os livros de cada
+     * pontuação e a segunda, que os percorre em ordem de id, guarda só os da página.
+     */
+    public Optional<SearchPage> search(String title, String author, long offset, int size) {
+        Optional<List<Clause>> query = clauses(title, author);
+        if (query.isEmpty()) {
+            return Optional.empty();
+        }
+        List<Clause> clauses = query.get();
+        Clause first = mostSelective(clauses);
+
+        long[] counts = new long[EXACT_SCORE * clauses.size() + 1];
+        forEachMatch(clauses, first, (id, score) -> counts[score]++);
+
+        /* a página começa na maior pontuação; quantos pular e quantos levar de cada uma */
+        long[] skip = new long[counts.length];
+        long[] take = new long[counts.length];
+        long toSkip = offset;
+        long toTake = size;
+        long total = 0;
+        for (int score = counts.length - 1; score > 0; score--) {
+            total += counts[score];
+            skip[score] = Math.min(toSkip, counts[score]);
+            toSkip -= skip[score];
+            take[score] = Math.min(toTake, counts[score] - skip[score]);
+            toTake -= take[score];
+        }
+
+        List<List<Long>> byScore = new ArrayList<>();
+        for (int score = 0; score < counts.length; score++) {
+            byScore.add(new ArrayList<>());
+        }
+        forEachMatch(clauses, first, (id, score) -> {
+            if (skip[score] > 0) {
+                skip[score]--;
+            } else if (byScore.get(score).size() < take[score]) {
+                byScore.get(score).add(id);
+            }
+        });
+        List<Long> ids = new ArrayList<>(size);
+        for (int score = counts.length - 1; score > 0; score--) {
+            ids.addAll(byScore.get(score));
+        }
+        return Optional.of(new SearchPage(ids, total));
+    }
+
+    /* os candidatos vêm do termo mais seletivo em ordem de id; os demais são conferidos nos termos de cada um */
+    private static void forEachMatch(List<Clause> clauses, Clause first, ObjIntConsumer<Long> consumer) {
+        Iterator<Long> candidates = Field.idsAfter(first.postings, null);
+        while (candidates.hasNext()) {
+            Long id = candidates.next();
+            int total = 0;
+            for (Clause clause : clauses) {
+                int score = clause.field.score(id, clause.term);
+                if (score == 0) {
+                    total = 0;
+                    break;
+                }
+                total += score;
+            }
+            if (total > 0) {
+                consumer.accept(id, total);
+            }
+        }
+    }
+
+    /*
+     * Até limit ids que casam com título e autor, em ordem crescente e maiores que lastId. Percorre as
+     * listas do termo mais seletivo a partir de lastId e para ao completar a página.
+     */
+    public Optional<List<Long>> searchAfter(String title, String author, Long lastId, int limit) {
+        Optional<List<Clause>> query = clauses(title, author);
+        if (query.isEmpty()) {
+            return Optional.empty();
+        }
+        List<Clause> clauses = query.get();
+        Clause first = mostSelective(clauses);
+        List<Long> ids = new ArrayList<>();
+        Iterator<Long> candidates = Field.idsAfter(first.postings, lastId);
+        while (ids.size() < limit && candidates.hasNext()) {
+            Long id = candidates.next();
+            if (clauses.stream().allMatch(clause -> clause == first || clause.field.score(id, clause.term) > 0)) {
+                ids.add(id);
+            }
+        }
+        return Optional.of(ids);
+    }
+
+    private Optional<List<Clause>> clauses(String title, String author) {
+        List<String> titleTerms = tokenize(title);
+        List<String> authorTerms = tokenize(author);
+        if (!isReady() || (titleTerms.isEmpty() && authorTerms.isEmpty())) {
+            return Optional.empty();
+        }
+        Postings current = postings;
+        List<Clause> clauses = new ArrayList<>();
+        titleTerms.forEach(term -> clauses.add(new Clause(current.title, term)));
+        authorTerms.forEach(term -> clauses.add(new Clause(current.author, term)));
+        return Optional.of(clauses);
+    }
+
+    private static Clause mostSelective(List<Clause> clauses) {
+        return clauses.stream().min(Comparator.comparingLong(Clause::estimate)).get();
+    }
+
+    /* uma página da busca por relevância */
+    public static final class SearchPage {
+
+        private final List<Long> ids;
+        private final long total;
+
+        SearchPage(List<Long> ids, long total) {
+            this.ids = ids;
+            this.total = total;
+        }
+
+        public List<Long> getIds() {
+            return ids;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        return Arrays.stream(SEPARATORS.split(normalized))
+                .filter(term -> !term.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    private static final class Clause {
+
+        final Field field;
+        final String term;
+        /* listas dos termos indexados que contêm term, procuradas uma vez por consulta */
+        final List<Posting> postings;
+
+        Clause(Field field, String term) {
+            this.field = field;
+            this.term = term;
+            this.postings = field.containing(term);
+        }
+
+        long estimate() {
+            return postings.stream().mapToLong(posting -> posting.size).sum();
+        }
+    }
+
+    private static final class Postings {
+
+        final Field title = new Field();
+        final Field author = new Field();
+
+        void put(Long id, String titleText, String authorText) {
+            title.put(id, tokenize(titleText));
+            author.put(id, tokenize(authorText));
+        }
+
+        void remove(Long id) {
+            title.remove(id);
+            author.remove(id);
+        }
+    }
+
+    /* escritas serializadas por campo; as buscas leem as estruturas concorrentes sem lock */
+    private static final class Field {
+
+        private final ConcurrentSkipListMap<String, Posting> terms = new ConcurrentSkipListMap<>();
+        /* trigrama -> termos indexados que o contêm */
+        private final Map<String, Set<String>> grams = new ConcurrentHashMap<>();
+        private final Map<Long, List<String>> documents = new ConcurrentHashMap<>();
+
+        synchronized void put(Long id, List<String> tokens) {
+            List<String> previous = documents.put(id, tokens);
+            if (previous != null) {
+                previous.stream().filter(term -> !tokens.contains(term)).forEach(term -> unlink(term, id));
+            }
+            tokens.forEach(term -> terms.computeIfAbsent(term, this::newPosting).add(id));
+        }
+
+        synchronized void remove(Long id) {
+            List<String> previous = documents.remove(id);
+            if (previous != null) {
+                previous.forEach(term -> unlink(term, id));
+            }
+        }
+
+        /*
+         * Listas dos termos indexados que contêm term. Com ao menos um trigrama, os candidatos são os
+         * termos do trigrama mais raro; termos mais curtos percorrem o vocabulário.
+         */
+        List<Posting> containing(String term) {
+            Stream<String> candidates;
+            if (term.length() < GRAM) {
+                candidates = terms.keySet().stream();
+            } else {
+                candidates = grams(term).stream()
+                        .map(gram -> grams.getOrDefault(gram, Set.of()))
+                        .min(Comparator.comparingInt(Set::size))
+                        .orElse(Set.of())
+                        .stream();
+            }
+            return candidates.filter(indexed -> indexed.contains(term))
+                    .map(terms::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+        }
+
+        /*
+         * ids das listas informadas, em ordem crescente e maiores que lastId; o mesmo livro em mais de
+         * uma lista aparece em sequência na intercalação e sai uma vez só
+         */
+        static Iterator<Long> idsAfter(List<Posting> postings, Long lastId) {
+            List<Iterator<Long>> lists = postings.stream()
+                    .map(posting -> (lastId == null ? posting.ids : posting.ids.tailSet(lastId, false)).iterator())
+                    .collect(Collectors.toList());
+            Iterator<Long> merged = Iterators.mergeSorted(lists, Comparator.naturalOrder());
+            return new AbstractIterator<Long>() {
+                private Long last;
+
+                @Override
+                protected Long computeNext() {
+                    while (merged.hasNext()) {
+                        Long id = merged.next();
+                        if (!id.equals(last)) {
+                            last = id;
+                            return id;
+                        }
+                    }
+                    return endOfData();
+                }
+            };
+        }
+
+        int score(Long id, String term) {
+            List<String> tokens = documents.get(id);
+            if (tokens == null) {
+                return 0;
+            }
+            if (tokens.contains(term)) {
+                return EXACT_SCORE;
+            }
+            if (tokens.stream().anyMatch(token -> token.startsWith(term))) {
+                return PREFIX_SCORE;
+            }
+            return tokens.stream().anyMatch(token -> token.contains(term)) ? INFIX_SCORE : 0;
+        }
+
+        private Posting newPosting(String term) {
+            grams(term).forEach(gram -> grams.computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet()).add(term));
+            return new Posting();
+        }
+
+        private void unlink(String term, Long id) {
+            terms.computeIfPresent(term, (key, posting) -> {
+                posting.remove(id);
+                if (posting.size > 0) {
+                    return posting;
+                }
+                grams(key).forEach(gram -> grams.computeIfPresent(gram, (g, indexed) -> {
+                    indexed.remove(key);
+                    return indexed.isEmpty() ? null : indexed;
+                }));
+                return null;
+            });
+        }
+
+        private static Set<String> grams(String term) {
+            Set<String> grams = new HashSet<>();
+            for (int i = 0; i + GRAM <= term.length(); i++) {
+                grams.add(term.substring(i, i + GRAM));
+            }
+            return grams;
+        }
+    }
+
+    /* ids de um termo em ordem; o tamanho é mantido à parte porque size() percorre o ConcurrentSkipListSet */
+    private static final class Posting {
+
+        final ConcurrentSkipListSet<Long> ids = new ConcurrentSkipListSet<>();
+        /* alterado só sob o lock do Field */
+        volatile int size;
+
+        void add(Long id) {
+            if (ids.add(id)) {
+                size++;
+            }
+        }
+
+        void remove(Long id) {
+            if (ids.remove(id)) {
+                size--;
+            }
+        }
+    }
+}
@@ -1,69 +1,219 @@
 package com.joaovictor.libraryapi.service.impl;
 
+import com.joaovictor.libraryapi.api.dto.BookDTO;
 import com.joaovictor.libraryapi.model.entity.Book;
 import com.joaovictor.libraryapi.model.repository.BookRepository;
 import com.joaovictor.libraryapi.service.BookService;
 import com.joaovictor.libraryapi.exception.BusinessException;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.ExampleMatcher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class BookServiceImpl implements BookService {
 
     private BookRepository bookRepository;
+    private IsbnBloomFilter isbnFilter;
+    private BookSearchIndex searchIndex;
 
-    public BookServiceImpl(BookRepository bookRepository) {
+    public BookServiceImpl(BookRepository bookRepository, IsbnBloomFilter isbnFilter, BookSearchIndex searchIndex) {
         this.bookRepository = bookRepository;
+        this.isbnFilter = isbnFilter;
+        this.searchIndex = searchIndex;
     }
 
     @Override
     public Book save(Book book) {
-        if (this.bookRepository.existsByIsbn(book.getIsbn())) {
+        if (this.isbnFilter.mightContain(book.getIsbn()) && this.bookRepository.existsByIsbn(book.getIsbn())) {
             throw new BusinessException("Isbn já cadastrado.");
         }
-        return this.bookRepository.save(book);
+        Book savedBook;
+        try {
+            savedBook = this.bookRepository.save(book);
+        } catch (DataIntegrityViolationException e) {
+            /* outro save do mesmo isbn passou pela verificação ao mesmo tempo e o índice único ux_book_isbn barrou este */
+            if (this.bookRepository.existsByIsbn(book.getIsbn())) {
+                throw new BusinessException("Isbn já cadastrado.");
+            }
+            throw e;
+        }
+        this.isbnFilter.put(savedBook.getIsbn());
+        this.searchIndex.put(savedBook);
+        return savedBook;
     }
 
     @Override
+    public List<Book> saveAll(List<Book> books) {
+        Set<String> candidates = books.stream()
+                .map(Book::getIsbn)
+                .filter(this.isbnFilter::mightContain)
+                .collect(Collectors.toSet());
+        Set<String> existing = candidates.isEmpty() ? Set.of() : this.bookRepository.findExistingIsbns(candidates);
+
+        Set<String> accepted = new HashSet<>();
+        List<Book> newBooks = books.stream()
+                .filter(book -> !existing.contains(book.getIsbn()) && accepted.add(book.getIsbn()))
+                .collect(Collectors.toList());
+
+        List<Book> savedBooks = this.bookRepository.saveAll(newBooks);
+        savedBooks.forEach(book -> {
+            this.isbnFilter.put(book.getIsbn());
+            this.searchIndex.put(book);
+        });
+        return savedBooks;
+    }
+
+    @Override
+    @Cacheable(cacheNames = "books", key = "#id", unless = "#result == null")
     public Optional<Book> getById(Long id) {
         return this.bookRepository.findById(id);
     }
 
+    /* só a versão, sem carregar o livro: responde os GETs condicionais (If-None-Match) */
     @Override
+    @Cacheable(cacheNames = "bookVersions", key = "#id", unless = "#result == null")
+    public Optional<Long> getVersionById(Long id) {
+        return this.bookRepository.findVersionById(id);
+    }
+
+    @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = "books", key = "#book.id", condition = "#book?.id != null"),
+            @CacheEvict(cacheNames = "bookVersions", key = "#book.id", condition = "#book?.id != null"),
+            @CacheEvict(cacheNames = "booksByIsbn", key = "#book.isbn", condition = "#book?.isbn != null")
+    })
     public void delete(Book book) {
         if (book == null || book.getId() == null) {
             throw new IllegalArgumentException("Book id não pode ser nulo.");
         }
         this.bookRepository.delete(book);
+        this.searchIndex.remove(book.getId());
     }
 
     @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = "books", key = "#book.id", condition = "#book?.id != null"),
+            @CacheEvict(cacheNames = "bookVersions", key = "#book.id", condition = "#book?.id != null"),
+            @CacheEvict(cacheNames = "booksByIsbn", key = "#book.isbn", condition = "#book?.isbn != null")
+    })
     public Book update(Book book) {
         if (book == null || book.getId() == null) {
             throw new IllegalArgumentException("Book id não pode ser nulo.");
         }
-        return this.bookRepository.save(book);
+        Book updatedBook = this.bookRepository.save(book);
+        this.searchIndex.put(updatedBook);
+        return updatedBook;
     }
 
+    /*
+     * Título e autor são buscados no índice em memória, em ordem de relevância. Cada termo casa por trecho,
+     * como no CONTAINING, mas sem distinção de acentos e com os termos em qualquer ordem. A consulta por
+     * Example fica para filtros com isbn (igualdade, servida pelo índice único) ou id, ordenação explícita
+     * e enquanto o índice estiver carregando.
+     */
     @Override
     public Page<Book> find(Book filter, Pageable pageRequest) {
-        Example<Book> example = Example.of(filter,
+        if (pageRequest.getSort().isUnsorted() && indexable(filter)) {
+            while (true) {
+                Optional<BookSearchIndex.SearchPage> page = searchIndex.search(
+                        filter.getTitle(), filter.getAuthor(), pageRequest.getOffset(), pageRequest.getPageSize());
+                if (page.isEmpty()) {
+                    break;
+                }
+                Optional<List<Book>> books = findAllInOrder(page.get().getIds());
+                if (books.isPresent()) {
+                    return new PageImpl<>(books.get(), pageRequest, page.get().getTotal());
+                }
+            }
+        }
+        return bookRepository.findAll(filterExample(filter), pageRequest);
+    }
+
+    /* no índice, só os ids da página (e um a mais) a partir de lastId, sem ordenar todos os que casam */
+    @Override
+    public Slice<Book> findAfter(Book filter, Long lastId, int size) {
+        if (indexable(filter)) {
+            while (true) {
+                Optional<List<Long>> page = searchIndex.searchAfter(filter.getTitle(), filter.getAuthor(), lastId, size + 1);
+                if (page.isEmpty()) {
+                    break;
+                }
+                List<Long> ids = page.get();
+                boolean hasNext = ids.size() > size;
+                Optional<List<Book>> books = findAllInOrder(hasNext ? ids.subList(0, size) : ids);
+                if (books.isPresent()) {
+                    return new SliceImpl<>(books.get(), PageRequest.of(0, size), hasNext);
+                }
+            }
+        }
+        return bookRepository.findAfter(filterExample(filter), lastId, size);
+    }
+
+    private static boolean indexable(Book filter) {
+        return filter.getId() == null && filter.getIsbn() == null;
+    }
+
+    /*
+     * Livros dos ids na ordem do índice. Ids removidos do banco por fora do serviço saem do índice e a
+     * resposta é vazia, para a página (e o total) ser refeita só com ids que existem.
+     */
+    private Optional<List<Book>> findAllInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Optional.of(List.of());
+        }
+        Map<Long, Book> books = bookRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        List<Long> missing = ids.stream().filter(id -> !books.containsKey(id)).collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            missing.forEach(searchIndex::remove);
+            return Optional.empty();
+        }
+        return Optional.of(ids.stream().map(books::get).collect(Collectors.toList()));
+    }
+
+    private Example<Book> filterExample(Book filter) {
+        return Example.of(filter,
                 ExampleMatcher
                         .matching()
                         .withIgnoreCase()
                         .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING)
+                        .withMatcher("isbn", isbn -> isbn.exact().caseSensitive())
         );
-        return bookRepository.findAll(example, pageRequest);
     }
 
     @Override
+    @Cacheable(cacheNames = "booksByIsbn", key = "#isbn", unless = "#result == null")
     public Optional<Book> getBookByIsbn(String isbn) {
         return this.bookRepository.findByIsbn(isbn);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAll(Consumer<BookDTO> consumer) {
+        try (Stream<BookRepository.BookRow> books = this.bookRepository.streamAllRows()) {
+            books.forEach(book -> consumer.accept(new BookDTO(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn())));
+        }
+    }
+
 }
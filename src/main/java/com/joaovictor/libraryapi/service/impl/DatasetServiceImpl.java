@@ -0,0 +1,221 @@
+package com.joaovictor.libraryapi.service.impl;
+
+import com.joaovictor.libraryapi.service.DatasetReport;
+import com.joaovictor.libraryapi.service.DatasetService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+/*
+ * Gera uma massa de dados sintética direto por JDBC em lotes, para reproduzir localmente problemas
+ * de escala. A popularidade dos livros, dos autores e dos clientes segue uma distribuição de Zipf;
+ * cada livro tem no máximo um empréstimo em aberto e uma fração dos abertos já está atrasada.
+ * Roda antes do ApplicationReadyEvent, então os índices em memória já sobem com a massa gerada.
+ */
+@Service
+@Slf4j
+public class DatasetServiceImpl implements DatasetService {
+
+    /* mesmo allocationSize do book_seq em Book: cada valor da sequence reserva um bloco de ids */
+    private static final int BOOK_ID_BLOCK = 50;
+    private static final String[] TITLE_WORDS = {
+            "Aventuras", "Mistério", "História", "Jornada", "Segredo", "Cidade", "Sombra", "Memórias",
+            "Viagem", "Guerra", "Amor", "Tempo", "Mar", "Noite", "Reino", "Caminho", "Fogo", "Ilha"};
+
+    private final DataSource dataSource;
+    private final int customers;
+    private final double zipfExponent;
+    private final double openRatio;
+    private final double overdueRatio;
+    private final int historyDays;
+    private final int batchSize;
+    private final long seed;
+    private final int loanDays;
+    /* atrasado a partir do dia seguinte ao prazo */
+    private final int lateAfterDays;
+
+    public DatasetServiceImpl(DataSource dataSource,
+                              @Value("${application.dataset.customers:0}") int customers,
+                              @Value("${application.dataset.zipf-exponent:1.0}") double zipfExponent,
+                              @Value("${application.dataset.open-ratio:0.3}") double openRatio,
+                              @Value("${application.dataset.overdue-ratio:0.2}") double overdueRatio,
+                              @Value("${application.dataset.history-days:365}") int historyDays,
+                              @Value("${application.dataset.batch-size:1000}") int batchSize,
+                              @Value("${application.dataset.seed:42}") long seed,
+                              @Value("${application.loan.default-days:3}") int loanDays) {
+        this.dataSource = dataSource;
+        this.customers = customers;
+        this.zipfExponent = zipfExponent;
+        this.openRatio = openRatio;
+        this.overdueRatio = overdueRatio;
+        this.loanDays = loanDays;
+        this.lateAfterDays = loanDays + 1;
+        this.historyDays = Math.max(lateAfterDays + 1, historyDays);
+        this.batchSize = Math.max(1, batchSize);
+        this.seed = seed;
+    }
+
+    @Override
+    public DatasetReport generate(int books, long loans) {
+        if (books < 1) {
+            throw new IllegalArgumentException("A massa de dados precisa de ao menos um livro.");
+        }
+        int customerCount = customers > 0 ? customers : Math.max(1, books / 10);
+        log.info("GENERATING DATASET: {} BOOKS, {} LOANS, {} CUSTOMERS", books, loans, customerCount);
+        long start = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(seed);
+        DatasetReport report = DatasetReport.builder().customers(customerCount).build();
+
+        Connection connection = null;
+        boolean autoCommit = true;
+        try {
+            connection = dataSource.getConnection();
+            autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            long[] bookIds = insertBooks(connection, books, random);
+            report.setBooks(bookIds.length);
+            insertLoans(connection, bookIds, loans, customerCount, random, report);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Falha ao gerar a massa de dados.", e);
+        } finally {
+            restoreAutoCommit(connection, autoCommit);
+            JdbcUtils.closeConnection(connection);
+        }
+
+        report.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        log.info("DATASET GENERATED: {} BOOKS, {} LOANS ({} OPEN, {} OVERDUE) IN {} MS ({} ROWS/S)",
+                report.getBooks(), report.getLoans(), report.getOpenLoans(), report.getOverdueLoans(),
+                report.getElapsedMillis(), Math.round(report.getRowsPerSecond()));
+        return report;
+    }
+
+    private long[] insertBooks(Connection connection, int books, SplittableRandom random) throws SQLException {
+        long[] ids = new long[books];
+        ZipfSampler authors = new ZipfSampler(Math.max(1, books / 20), zipfExponent);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "insert into book (id, title, author, isbn, version) values (?, ?, ?, ?, 0)");
+             PreparedStatement sequence = connection.prepareStatement("call next value for book_seq")) {
+            long nextId = 0;
+            long lastId = -1;
+            for (int i = 0; i < books; i++) {
+                if (nextId > lastId) {
+                    /* bloco (valor - 50, valor], o mesmo que o otimizador pooled do Hibernate reserva */
+                    lastId = nextSequenceValue(sequence);
+                    nextId = Math.max(1, lastId - BOOK_ID_BLOCK + 1);
+                }
+                ids[i] = nextId++;
+                insert.setLong(1, ids[i]);
+                insert.setString(2, TITLE_WORDS[random.nextInt(TITLE_WORDS.length)] + " "
+                        + TITLE_WORDS[random.nextInt(TITLE_WORDS.length)] + " " + (i % 1000));
+                insert.setString(3, "Author " + authors.sample(random));
+                insert.setString(4, isbn(i));
+                insert.addBatch();
+                if ((i + 1) % batchSize == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+        return ids;
+    }
+
+    private void insertLoans(Connection connection, long[] bookIds, long loans, int customerCount,
+                             SplittableRandom random, DatasetReport report) throws SQLException {
+        ZipfSampler popularity = new ZipfSampler(bookIds.length, zipfExponent);
+        ZipfSampler readers = new ZipfSampler(customerCount, zipfExponent);
+        long stride = stride(bookIds.length);
+        BitSet lent = new BitSet(bookIds.length);
+        LocalDate today = LocalDate.now();
+
+        try (PreparedStatement insert = connection.prepareStatement(
+                "insert into loan (customer, customer_email, id_book, loan_date, due_date, returned, version) values (?, ?, ?, ?, ?, ?, 0)")) {
+            for (long i = 0; i < loans; i++) {
+                /* espalha os postos mais populares pela tabela em vez de concentrá-los nos primeiros ids */
+                int book = (int) ((popularity.sample(random) - 1) * stride % bookIds.length);
+                int customer = readers.sample(random);
+                boolean open = !lent.get(book) && random.nextDouble() < openRatio;
+                LocalDate loanDate;
+                if (!open) {
+                    loanDate = today.minusDays(random.nextInt(historyDays));
+                } else if (random.nextDouble() < overdueRatio) {
+                    loanDate = today.minusDays(lateAfterDays + random.nextInt(historyDays - lateAfterDays));
+                    report.setOverdueLoans(report.getOverdueLoans() + 1);
+                } else {
+                    loanDate = today.minusDays(random.nextInt(lateAfterDays));
+                }
+                if (open) {
+                    lent.set(book);
+                    report.setOpenLoans(report.getOpenLoans() + 1);
+                }
+                insert.setString(1, "Customer " + customer);
+                insert.setString(2, "customer" + customer + "@email.com");
+                insert.setLong(3, bookIds[book]);
+                insert.setDate(4, Date.valueOf(loanDate));
+                insert.setDate(5, Date.valueOf(loanDate.plusDays(loanDays)));
+                insert.setBoolean(6, !open);
+                insert.addBatch();
+                if ((i + 1) % batchSize == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+        report.setLoans(loans);
+    }
+
+    /* 978 seguido de i com 10 dígitos (String.format pesa no volume de milhões de linhas) */
+    private static String isbn(int i) {
+        String digits = Integer.toString(i);
+        StringBuilder isbn = new StringBuilder(13).append("978");
+        for (int pad = digits.length(); pad < 10; pad++) {
+            isbn.append('0');
+        }
+        return isbn.append(digits).toString();
+    }
+
+    private static long nextSequenceValue(PreparedStatement sequence) throws SQLException {
+        try (ResultSet resultSet = sequence.executeQuery()) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    /* passo coprimo com n (perto da razão áurea), que torna posto -> índice uma permutação */
+    private static long stride(int n) {
+        long stride = Math.max(1, (long) (n * 0.6180339887));
+        while (gcd(stride, n) != 1) {
+            stride--;
+        }
+        return stride;
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    private static void restoreAutoCommit(Connection connection, boolean autoCommit) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.setAutoCommit(autoCommit);
+        } catch (SQLException e) {
+            log.warn("COULD NOT RESTORE AUTO-COMMIT: {}", e.getMessage());
+        }
+    }
+}
@@ -1,33 +1,238 @@
 package com.joaovictor.libraryapi.service.impl;
 
 import com.joaovictor.libraryapi.service.EmailService;
-import lombok.RequiredArgsConstructor;
+import com.google.common.collect.Lists;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMailMessage;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/*
+ * Envio assíncrono: as mensagens são divididas em blocos de destinatários e enfileiradas numa fila limitada
+ * (quando cheia ou já encerrada, quem chamou envia e fecha a conexão ao terminar). Cada worker mantém sua
+ * própria conexão SMTP aberta entre os envios e tenta novamente com backoff exponencial em caso de falha.
+ * Mensagens individuais (sendMessages) seguem em lotes: cada lote é enviado por um worker em sequência,
+ * pela mesma conexão.
+ */
 @Service
-@RequiredArgsConstructor
+@Slf4j
 public class EmailServiceImpl implements EmailService {
 
     private final JavaMailSender javaMailSender;
+    private final String remetent;
+    private final int maxRecipients;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long backoffMillis;
 
-    @Value("${application.mail.default-remetent}")
-    private String remetent;
+    private final ThreadPoolExecutor executor;
+    private final ThreadLocal<Transport> workerTransport = new ThreadLocal<>();
+    private final Queue<Transport> openTransports = new ConcurrentLinkedQueue<>();
+
+    private final Timer sendTimer;
+    private final Counter retries;
+    private final Counter failures;
+    private final Counter callerRunsAfterShutdown;
+
+    public EmailServiceImpl(JavaMailSender javaMailSender,
+                            MeterRegistry meterRegistry,
+                            @Value("${application.mail.default-remetent}") String remetent,
+                            @Value("${application.mail.dispatch.workers}") int workers,
+                            @Value("${application.mail.dispatch.queue-capacity}") int queueCapacity,
+                            @Value("${application.mail.dispatch.max-recipients}") int maxRecipients,
+                            @Value("${application.mail.dispatch.batch-size:20}") int batchSize,
+                            @Value("${application.mail.dispatch.max-attempts}") int maxAttempts,
+                            @Value("${application.mail.dispatch.backoff-millis}") long backoffMillis,
+                            @Value("${application.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.javaMailSender = javaMailSender;
+        this.remetent = remetent;
+        this.maxRecipients = maxRecipients;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), workerThreadFactory(virtualThreads), this::runOnCaller);
+
+        this.sendTimer = Timer.builder("library.mail.send")
+                .description("Latência de envio de cada mensagem ao servidor SMTP")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.retries = Counter.builder("library.mail.retries").register(meterRegistry);
+        this.failures = Counter.builder("library.mail.failures").register(meterRegistry);
+        this.callerRunsAfterShutdown = Counter.builder("library.mail.after-shutdown")
+                .description("Envios feitos na thread de quem chamou depois do shutdown do pool")
+                .register(meterRegistry);
+        meterRegistry.gauge("library.mail.queue", executor, e -> e.getQueue().size());
+        meterRegistry.gauge("library.mail.connections", openTransports, Queue::size);
+    }
 
     @Override
     public void sendEmails(List<String> mailsList, String message) {
-        String[] mails = mailsList.toArray(new String[mailsList.size()]);
+        for (int from = 0; from < mailsList.size(); from += maxRecipients) {
+            List<String> recipients = mailsList.subList(from, Math.min(from + maxRecipients, mailsList.size()));
+
+            SimpleMailMessage mailMessage = new SimpleMailMessage();
+            mailMessage.setFrom(remetent);
+            mailMessage.setSubject("Livro com empréstimo atrasado");
+            mailMessage.setText(message);
+            mailMessage.setTo(recipients.toArray(new String[0]));
+
+            executor.execute(() -> deliver(mailMessage));
+        }
+    }
+
+    @Override
+    public void sendMessages(List<SimpleMailMessage> messages) {
+        for (List<SimpleMailMessage> batch : Lists.partition(messages, batchSize)) {
+            /* cópias: o remetente padrão não é gravado nas mensagens de quem chamou */
+            List<SimpleMailMessage> copy = new ArrayList<>(batch.size());
+            for (SimpleMailMessage message : batch) {
+                SimpleMailMessage mailMessage = new SimpleMailMessage(message);
+                if (mailMessage.getFrom() == null) {
+                    mailMessage.setFrom(remetent);
+                }
+                copy.add(mailMessage);
+            }
+            executor.execute(() -> copy.forEach(this::deliver));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("MAIL DISPATCH STOPPED WITH {} MESSAGES IN QUEUE", executor.shutdownNow().size());
+        }
+        Transport transport;
+        while ((transport = openTransports.poll()) != null) {
+            close(transport);
+        }
+    }
 
-        SimpleMailMessage mailMessage = new SimpleMailMessage();
-        mailMessage.setFrom(remetent);
-        mailMessage.setSubject("Livro com empréstimo atrasado");
-        mailMessage.setText(message);
-        mailMessage.setTo(mails);
+    /*
+     * Fila cheia ou envio depois do shutdown: envia na thread de quem chamou, que não guarda a conexão
+     * como um worker. Nada é descartado.
+     */
+    private void runOnCaller(Runnable task, ThreadPoolExecutor pool) {
+        if (pool.isShutdown()) {
+            callerRunsAfterShutdown.increment();
+            log.warn("MAIL DISPATCH IS SHUT DOWN, SENDING ON THE CALLER THREAD");
+        }
+        try {
+            task.run();
+        } finally {
+            closeWorkerTransport();
+        }
+    }
+
+    private void deliver(SimpleMailMessage mailMessage) {
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
+            try {
+                send(mailMessage);
+                sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return;
+            } catch (MailException | MessagingException e) {
+                closeWorkerTransport();
+                if (attempt >= maxAttempts) {
+                    failures.increment();
+                    log.error("FAILED TO SEND EMAIL TO {} RECIPIENTS AFTER {} ATTEMPTS", mailMessage.getTo().length, attempt, e);
+                    return;
+                }
+                retries.increment();
+                log.warn("ERROR SENDING EMAIL (ATTEMPT {}): {}", attempt, e.getMessage());
+                try {
+                    Thread.sleep(backoffMillis << (attempt - 1));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    failures.increment();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void send(SimpleMailMessage mailMessage) throws MessagingException {
+        if (!(javaMailSender instanceof JavaMailSenderImpl)) {
+            javaMailSender.send(mailMessage);
+            return;
+        }
+        JavaMailSenderImpl sender = (JavaMailSenderImpl) javaMailSender;
+        MimeMessage mimeMessage = sender.createMimeMessage();
+        mailMessage.copyTo(new MimeMailMessage(mimeMessage));
+        mimeMessage.setSentDate(new Date());
+        mimeMessage.saveChanges();
+
+        connectedTransport(sender).sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+    }
+
+    private Transport connectedTransport(JavaMailSenderImpl sender) throws MessagingException {
+        Transport transport = workerTransport.get();
+        if (transport != null && transport.isConnected()) {
+            return transport;
+        }
+        closeWorkerTransport();
+
+        String username = sender.getUsername() == null || sender.getUsername().isEmpty() ? null : sender.getUsername();
+        String protocol = sender.getProtocol() != null ? sender.getProtocol()
+                : sender.getSession().getProperty("mail.transport.protocol");
+        transport = sender.getSession().getTransport(protocol != null ? protocol : JavaMailSenderImpl.DEFAULT_PROTOCOL);
+        transport.connect(sender.getHost(), sender.getPort(), username, sender.getPassword());
+        workerTransport.set(transport);
+        openTransports.add(transport);
+        return transport;
+    }
+
+    private void closeWorkerTransport() {
+        Transport transport = workerTransport.get();
+        if (transport != null) {
+            workerTransport.remove();
+            openTransports.remove(transport);
+            close(transport);
+        }
+    }
+
+    private void close(Transport transport) {
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            log.debug("ERROR CLOSING SMTP CONNECTION: {}", e.getMessage());
+        }
+    }
 
-        javaMailSender.send(mailMessage);
+    /* com threads virtuais o número de workers continua limitado: cada um mantém uma conexão SMTP */
+    private static ThreadFactory workerThreadFactory(boolean virtualThreads) {
+        if (virtualThreads) {
+            return Thread.ofVirtual().name("mail-sender-", 1).factory();
+        }
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "mail-sender-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
     }
 }
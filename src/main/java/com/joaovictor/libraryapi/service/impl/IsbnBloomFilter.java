@@ -0,0 +1,82 @@
+package com.joaovictor.libraryapi.service.impl;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.joaovictor.libraryapi.model.repository.BookRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+/*
+ * Filtro probabilístico dos isbns já cadastrados. Um "não contém" é definitivo e dispensa a consulta
+ * existsByIsbn; um "talvez contenha" sempre é confirmado no banco. Livros deletados não são removidos
+ * do filtro (Bloom filter não suporta remoção), o que apenas faz o isbn cair na consulta ao banco.
+ */
+@Component
+@Slf4j
+public class IsbnBloomFilter {
+
+    private final BookRepository bookRepository;
+    private final boolean enabled;
+    private final long expectedInsertions;
+    private final double falsePositiveProbability;
+
+    private volatile BloomFilter<String> filter;
+    private volatile boolean ready;
+
+    public IsbnBloomFilter(BookRepository bookRepository,
+                           @Value("${application.book.isbn-filter.enabled:true}") boolean enabled,
+                           @Value("${application.book.isbn-filter.expected-insertions:1000000}") long expectedInsertions,
+                           @Value("${application.book.isbn-filter.fpp:0.01}") double falsePositiveProbability) {
+        this.bookRepository = bookRepository;
+        this.enabled = enabled;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.filter = newFilter();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        this.ready = false;
+        BloomFilter<String> newFilter = newFilter();
+        this.filter = newFilter;
+        long count = 0;
+        try (Stream<String> isbns = bookRepository.streamAllIsbns()) {
+            for (String isbn : (Iterable<String>) isbns::iterator) {
+                if (isbn != null) {
+                    newFilter.put(isbn);
+                    count++;
+                }
+            }
+        }
+        this.ready = true;
+        log.info("ISBN FILTER LOADED WITH {} ISBNS", count);
+    }
+
+    public boolean mightContain(String isbn) {
+        if (!enabled || !ready || isbn == null) {
+            return true;
+        }
+        return filter.mightContain(isbn);
+    }
+
+    public void put(String isbn) {
+        if (enabled && isbn != null) {
+            filter.put(isbn);
+        }
+    }
+
+    private BloomFilter<String> newFilter() {
+        return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedInsertions, falsePositiveProbability);
+    }
+}
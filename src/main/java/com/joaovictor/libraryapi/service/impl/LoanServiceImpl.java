@@ -1,36 +1,92 @@
 package com.joaovictor.libraryapi.service.impl;
 
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Striped;
 import com.joaovictor.libraryapi.api.dto.LoanFilterDTO;
 import com.joaovictor.libraryapi.exception.BusinessException;
 import com.joaovictor.libraryapi.model.entity.Book;
 import com.joaovictor.libraryapi.model.entity.Loan;
 import com.joaovictor.libraryapi.model.repository.LoanRepository;
 import com.joaovictor.libraryapi.service.LoanService;
+import com.joaovictor.libraryapi.service.OverdueDigest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 @Service
 public class LoanServiceImpl implements LoanService {
     private LoanRepository repository;
+    private ActiveLoanIndex activeLoans;
+    private OverdueLoanTracker overdueLoans;
+    private Striped<Lock> bookLocks;
+    private int defaultLoanDays;
+    private int returnsChunkSize;
 
     @Autowired
-    public LoanServiceImpl(LoanRepository repository) {
+    public LoanServiceImpl(LoanRepository repository, ActiveLoanIndex activeLoans, OverdueLoanTracker overdueLoans,
+                           @Value("${application.loan.lock-stripes:1024}") int lockStripes,
+                           @Value("${application.loan.default-days:3}") int defaultLoanDays,
+                           @Value("${application.loan.returns.chunk-size:500}") int returnsChunkSize) {
         this.repository = repository;
+        this.activeLoans = activeLoans;
+        this.overdueLoans = overdueLoans;
+        this.bookLocks = Striped.lock(lockStripes);
+        this.defaultLoanDays = defaultLoanDays;
+        this.returnsChunkSize = Math.max(1, returnsChunkSize);
     }
 
+    /*
+     * Verificação e gravação sob o lock do livro: empréstimos de livros diferentes seguem em paralelo
+     * (salvo colisão de faixa), os do mesmo livro são serializados. O save do repositório confirma a
+     * transação antes de o lock ser liberado, por isso este método não deve rodar dentro de outra transação.
+     */
     @Override
     public Loan save(Loan loan) {
-        if (repository.existsByBookAndNotReturned(loan.getBook())) {
-            throw new BusinessException("Book já emprestado.");
+        if (loan.getDueDate() == null && loan.getLoanDate() != null) {
+            loan.setDueDate(loan.getLoanDate().plusDays(defaultLoanDays));
+        }
+        if (loan.getDueDate() != null && loan.getLoanDate() != null && !loan.getDueDate().isAfter(loan.getLoanDate())) {
+            throw new BusinessException("Prazo do empréstimo deve ser de ao menos um dia.");
+        }
+        Long bookId = loan.getBook().getId();
+        Lock lock = bookLocks.get(bookId);
+        lock.lock();
+        try {
+            if (activeLoans.mightBeLent(bookId)) {
+                if (repository.existsByBookAndNotReturned(loan.getBook())) {
+                    throw new BusinessException("Book já emprestado.");
+                }
+                activeLoans.markReturned(bookId);
+            }
+            Loan savedLoan = repository.save(loan);
+            activeLoans.markLent(bookId);
+            overdueLoans.track(savedLoan.getId(), savedLoan.getDueDate(), savedLoan.getCustomerEmail());
+            return savedLoan;
+        } finally {
+            lock.unlock();
         }
-        return repository.save(loan);
     }
 
     @Override
@@ -40,7 +96,124 @@ public class LoanServiceImpl implements LoanService {
 
     @Override
     public Loan update(Loan loan) {
-        return repository.save(loan);
+        /* mesmo lock do save, para que a devolução não limpe o índice depois de um novo empréstimo */
+        Long bookId = loan.getBook().getId();
+        Lock lock = bookLocks.get(bookId);
+        lock.lock();
+        try {
+            Loan updatedLoan = repository.save(loan);
+            if (Boolean.TRUE.equals(updatedLoan.getReturned())) {
+                activeLoans.markReturned(bookId);
+                overdueLoans.untrack(updatedLoan.getId());
+            } else {
+                activeLoans.markLent(bookId);
+                overdueLoans.track(updatedLoan.getId(), updatedLoan.getDueDate(), updatedLoan.getCustomerEmail());
+            }
+            return updatedLoan;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Devolução por um UPDATE direto (sem carregar e regravar o empréstimo inteiro), sob o lock do livro
+     * como no update. Devolver um empréstimo já devolvido não altera nada e não mexe no índice.
+     */
+    @Override
+    public boolean returnLoan(Long id, boolean returned) {
+        Optional<LoanRepository.LoanRef> loan = repository.findRefById(id);
+        if (!loan.isPresent()) {
+            return false;
+        }
+        Long bookId = loan.get().getBookId();
+        withBookLocks(List.of(bookId), () -> {
+            int updated = repository.updateReturned(id, returned);
+            if (updated > 0 && returned) {
+                activeLoans.markReturned(bookId);
+                overdueLoans.untrack(id);
+            } else if (updated > 0) {
+                activeLoans.markLent(bookId);
+                overdueLoans.track(id, loan.get().getDueDate(), loan.get().getCustomerEmail());
+            }
+            return updated;
+        });
+        return true;
+    }
+
+    /*
+     * Devolução em massa: um UPDATE por bloco de ids ou de isbns, com os locks de todos os livros do
+     * bloco. Devolve o número de empréstimos efetivamente devolvidos.
+     */
+    @Override
+    public long returnLoans(Collection<Long> loanIds, Collection<String> isbns) {
+        long returned = 0;
+        if (loanIds != null) {
+            for (List<Long> chunk : Lists.partition(new ArrayList<>(new LinkedHashSet<>(loanIds)), returnsChunkSize)) {
+                returned += returnOpenLoans(() -> repository.findOpenLoanRefsByIds(chunk));
+            }
+        }
+        if (isbns != null) {
+            for (List<String> chunk : Lists.partition(new ArrayList<>(new LinkedHashSet<>(isbns)), returnsChunkSize)) {
+                returned += returnOpenLoans(() -> repository.findOpenLoanRefsByIsbns(chunk));
+            }
+        }
+        return returned;
+    }
+
+    private int returnOpenLoans(Supplier<List<LoanRepository.LoanRef>> openLoans) {
+        List<LoanRepository.LoanRef> loans = openLoans.get();
+        while (!loans.isEmpty()) {
+            Collection<Long> locked = bookIds(loans);
+            Lock[] locks = lock(locked);
+            try {
+                /* relido sob os locks: o empréstimo pode ter sido devolvido e o livro emprestado de novo */
+                List<LoanRepository.LoanRef> current = openLoans.get();
+                if (locked.containsAll(bookIds(current))) {
+                    if (current.isEmpty()) {
+                        return 0;
+                    }
+                    int updated = repository.returnByIds(current.stream().map(LoanRepository.LoanRef::getId).collect(Collectors.toList()));
+                    for (LoanRepository.LoanRef loan : current) {
+                        activeLoans.markReturned(loan.getBookId());
+                        overdueLoans.untrack(loan.getId());
+                    }
+                    return updated;
+                }
+                loans = current;
+            } finally {
+                unlock(locks);
+            }
+        }
+        return 0;
+    }
+
+    private static Set<Long> bookIds(List<LoanRepository.LoanRef> loans) {
+        return loans.stream().map(LoanRepository.LoanRef::getBookId).collect(Collectors.toCollection(HashSet::new));
+    }
+
+    private int withBookLocks(Collection<Long> bookIds, IntSupplier action) {
+        Lock[] locks = lock(bookIds);
+        try {
+            return action.getAsInt();
+        } finally {
+            unlock(locks);
+        }
+    }
+
+    /* bulkGet devolve as faixas em ordem crescente, o que evita deadlock entre devoluções em massa */
+    private Lock[] lock(Collection<Long> bookIds) {
+        List<Lock> locks = new ArrayList<>();
+        for (Lock lock : bookLocks.bulkGet(bookIds)) {
+            lock.lock();
+            locks.add(lock);
+        }
+        return locks.toArray(new Lock[0]);
+    }
+
+    private static void unlock(Lock[] locks) {
+        for (int i = locks.length - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
     }
 
     @Override
@@ -48,16 +221,94 @@ public class LoanServiceImpl implements LoanService {
         return repository.findByBookIsbnOrCustomer(filterDTO.getIsbn(), filterDTO.getCustomer(), pageable);
     }
 
+    @Override
+    public Slice<Loan> findAfter(LoanFilterDTO filterDTO, Long lastId, int size) {
+        return repository.findByBookIsbnOrCustomerAfter(filterDTO.getIsbn(), filterDTO.getCustomer(), lastId, PageRequest.of(0, size));
+    }
+
     @Override
     public Page<Loan> getLoansByBook(Book book, Pageable pageable) {
         return repository.findByBook(book, pageable);
     }
 
+    /* faixa de prazos no índice (due_date, returned); a lista inteira viria do banco de qualquer forma */
     @Override
     public List<Loan> getAllLateLoans() {
-        final Integer loanDays = 4;
-        LocalDate threeDaysAgo = LocalDate.now().minusDays(loanDays);
-        return repository.findByLoansDateLessThanAndNotReturned(threeDaysAgo);
+        return repository.findOverdueLoans(LocalDate.now());
+    }
+
+    @Override
+    public Optional<Boolean> isAvailable(Long bookId) {
+        if (!activeLoans.isReady()) {
+            return Optional.empty();
+        }
+        return Optional.of(!activeLoans.mightBeLent(bookId));
+    }
+
+    /*
+     * Um resumo por cliente com todos os seus atrasados (ver OverdueDigest.customerKey). Com o
+     * OverdueLoanTracker carregado, os ids vêm dele já agrupados por cliente e o banco lê só as linhas
+     * de um bloco de clientes por vez, pela chave primária. Sem ele, a consulta de todos os atrasados já
+     * vem ordenada por cliente e é agrupada em fluxo. Nos dois casos há no máximo um bloco de resumos
+     * em memória.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachOverdueDigestChunk(int chunkSize, Consumer<List<OverdueDigest>> consumer) {
+        LocalDate today = LocalDate.now();
+        if (overdueLoans.isReady()) {
+            List<Long> ids = new ArrayList<>();
+            int customers = 0;
+            for (List<Long> customerLoans : overdueLoans.overdueByCustomer(today).values()) {
+                ids.addAll(customerLoans);
+                if (++customers == chunkSize) {
+                    acceptDigestsInChunks(repository.findOverdueLoanViewsByIds(ids, today).iterator(), chunkSize, consumer);
+                    ids = new ArrayList<>();
+                    customers = 0;
+                }
+            }
+            if (!ids.isEmpty()) {
+                acceptDigestsInChunks(repository.findOverdueLoanViewsByIds(ids, today).iterator(), chunkSize, consumer);
+            }
+            return;
+        }
+        try (Stream<LoanRepository.OverdueLoanView> loans = repository.streamOverdueLoanViews(today)) {
+            acceptDigestsInChunks(loans.iterator(), chunkSize, consumer);
+        }
+    }
+
+    /* loans chega ordenado por cliente: cada troca de cliente fecha um resumo */
+    private static void acceptDigestsInChunks(Iterator<LoanRepository.OverdueLoanView> loans, int chunkSize,
+                                              Consumer<List<OverdueDigest>> consumer) {
+        List<OverdueDigest> chunk = new ArrayList<>(chunkSize);
+        OverdueDigest digest = null;
+        String key = null;
+        while (loans.hasNext()) {
+            LoanRepository.OverdueLoanView loan = loans.next();
+            String loanKey = OverdueDigest.customerKey(loan.getCustomerEmail());
+            if (!loanKey.equals(key)) {
+                if (digest != null) {
+                    chunk.add(digest);
+                    if (chunk.size() == chunkSize) {
+                        consumer.accept(chunk);
+                        chunk = new ArrayList<>(chunkSize);
+                    }
+                }
+                digest = OverdueDigest.builder()
+                        .customer(loan.getCustomer())
+                        .customerEmail(loan.getCustomerEmail().trim())
+                        .loans(new ArrayList<>())
+                        .build();
+                key = loanKey;
+            }
+            digest.getLoans().add(loan);
+        }
+        if (digest != null) {
+            chunk.add(digest);
+        }
+        if (!chunk.isEmpty()) {
+            consumer.accept(chunk);
+        }
     }
 
 
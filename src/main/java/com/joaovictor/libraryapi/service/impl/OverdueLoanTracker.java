@@ -0,0 +1,194 @@
+package com.joaovictor.libraryapi.service.impl;
+
+import com.joaovictor.libraryapi.model.repository.LoanRepository;
+import com.joaovictor.libraryapi.service.OverdueDigest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/*
+ * Empréstimos em aberto agrupados pelo dia do prazo (due_date), carregados na subida e mantidos a cada
+ * empréstimo e devolução sem lock global: cada empréstimo é alterado de forma atômica no mapa por id.
+ * Responde quais empréstimos estão atrasados, já agrupados por cliente, e quantos estão em aberto (os sem
+ * prazo entram só na contagem) sem consultar o banco. Durante a reconstrução as alterações são aplicadas
+ * também à estrutura em construção; as devoluções ficam marcadas nela para que a carga não devolva à
+ * estrutura um empréstimo já devolvido.
+ */
+@Component
+@Slf4j
+public class OverdueLoanTracker {
+
+    private final LoanRepository loanRepository;
+    private final boolean enabled;
+
+    private volatile Buckets buckets = new Buckets();
+    private volatile Buckets building;
+    private volatile boolean ready;
+
+    public OverdueLoanTracker(LoanRepository loanRepository,
+                              @Value("${application.loan.overdue-tracker.enabled:true}") boolean enabled) {
+        this.loanRepository = loanRepository;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        Buckets next = new Buckets();
+        this.building = next;
+        try (Stream<LoanRepository.LoanRef> loans = loanRepository.streamOpenLoanRefs()) {
+            for (LoanRepository.LoanRef loan : (Iterable<LoanRepository.LoanRef>) loans::iterator) {
+                next.load(loan.getId(), new Entry(loan.getDueDate(), OverdueDigest.customerKey(loan.getCustomerEmail())));
+            }
+        }
+        this.buckets = next;
+        this.building = null;
+        next.purgeReturned();
+        this.ready = true;
+        log.info("OVERDUE LOAN TRACKER LOADED WITH {} OPEN LOANS", next.open.get());
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    public void track(Long loanId, LocalDate dueDate, String customerEmail) {
+        if (!enabled || loanId == null) {
+            return;
+        }
+        Entry entry = new Entry(dueDate, OverdueDigest.customerKey(customerEmail));
+        /* lê a estrutura em construção antes da atual: ver rebuild() */
+        Buckets next = building;
+        if (next != null) {
+            next.put(loanId, entry);
+        }
+        buckets.put(loanId, entry);
+    }
+
+    public void untrack(Long loanId) {
+        if (!enabled || loanId == null) {
+            return;
+        }
+        Buckets next = building;
+        if (next != null) {
+            next.markReturned(loanId);
+        }
+        buckets.remove(loanId);
+    }
+
+    /*
+     * Ids dos empréstimos com prazo anterior a today, por cliente e na ordem das chaves de cliente. Guarda
+     * só os ids; os empréstimos sem e-mail não entram, pois não há a quem enviar o resumo.
+     */
+    public SortedMap<String, List<Long>> overdueByCustomer(LocalDate today) {
+        Buckets current = buckets;
+        SortedMap<String, List<Long>> byCustomer = new TreeMap<>();
+        for (Map.Entry<LocalDate, Set<Long>> day : current.byDay.headMap(today).entrySet()) {
+            for (Long loanId : day.getValue()) {
+                Entry entry = current.byLoan.get(loanId);
+                /* um empréstimo que acabou de mudar de prazo pode aparecer nos dois dias por um instante */
+                if (entry != null && day.getKey().equals(entry.dueDate) && entry.customerKey != null) {
+                    byCustomer.computeIfAbsent(entry.customerKey, key -> new ArrayList<>()).add(loanId);
+                }
+            }
+        }
+        return byCustomer;
+    }
+
+    public int openLoans() {
+        return buckets.open.get();
+    }
+
+    private static final class Entry {
+
+        /* marca, só na estrutura em construção, um empréstimo devolvido durante a carga */
+        static final Entry RETURNED = new Entry(null, null);
+
+        final LocalDate dueDate;
+        final String customerKey;
+
+        Entry(LocalDate dueDate, String customerKey) {
+            this.dueDate = dueDate;
+            this.customerKey = customerKey;
+        }
+    }
+
+    private static final class Buckets {
+
+        /* os dias esvaziados ficam até a próxima carga: removê-los disputaria com quem inclui no mesmo dia */
+        final ConcurrentSkipListMap<LocalDate, Set<Long>> byDay = new ConcurrentSkipListMap<>();
+        /* todos os empréstimos em aberto; os sem prazo não entram em byDay */
+        final ConcurrentHashMap<Long, Entry> byLoan = new ConcurrentHashMap<>();
+        final AtomicInteger open = new AtomicInteger();
+
+        void put(Long loanId, Entry entry) {
+            byLoan.compute(loanId, (id, previous) -> {
+                unlink(id, previous);
+                link(id, entry);
+                return entry;
+            });
+        }
+
+        /* carga: não sobrescreve o que foi alterado (ou devolvido) depois do início da reconstrução */
+        void load(Long loanId, Entry entry) {
+            byLoan.computeIfAbsent(loanId, id -> {
+                link(id, entry);
+                return entry;
+            });
+        }
+
+        void remove(Long loanId) {
+            byLoan.computeIfPresent(loanId, (id, previous) -> {
+                unlink(id, previous);
+                return null;
+            });
+        }
+
+        void markReturned(Long loanId) {
+            byLoan.compute(loanId, (id, previous) -> {
+                unlink(id, previous);
+                return Entry.RETURNED;
+            });
+        }
+
+        void purgeReturned() {
+            byLoan.values().removeIf(entry -> entry == Entry.RETURNED);
+        }
+
+        private void link(Long loanId, Entry entry) {
+            open.incrementAndGet();
+            if (entry.dueDate != null) {
+                byDay.computeIfAbsent(entry.dueDate, day -> ConcurrentHashMap.newKeySet()).add(loanId);
+            }
+        }
+
+        private void unlink(Long loanId, Entry previous) {
+            if (previous == null || previous == Entry.RETURNED) {
+                return;
+            }
+            open.decrementAndGet();
+            Set<Long> ids = previous.dueDate == null ? null : byDay.get(previous.dueDate);
+            if (ids != null) {
+                ids.remove(loanId);
+            }
+        }
+    }
+}
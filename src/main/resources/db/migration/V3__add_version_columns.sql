@@ -0,0 +1,4 @@
+-- @Version de Book e Loan (lock otimista e ETag da API)
+alter table book add column version bigint default 0 not null;
+
+alter table loan add column version bigint default 0 not null;
@@ -0,0 +1,11 @@
+-- Prazo de devolucao por emprestimo: atrasado a partir do dia seguinte ao due_date
+alter table loan add column due_date date;
+
+-- prazo padrao de 3 dias (atrasado quando loan_date <= hoje - 4, regra anterior)
+update loan set due_date = dateadd('DAY', 3, loan_date) where loan_date is not null;
+
+-- findOverdueLoans / streamOverdueLoanViews
+create index ix_loan_due_date_returned on loan (due_date, returned);
+
+-- o atraso deixou de ser calculado pela loan_date
+drop index ix_loan_date_returned;
@@ -0,0 +1,139 @@
+package com.joaovictor.libraryapi.api.reactive;
+
+import com.joaovictor.libraryapi.api.dto.BookDTO;
+import com.joaovictor.libraryapi.api.dto.LoanDTO;
+import com.joaovictor.libraryapi.model.entity.Book;
+import com.joaovictor.libraryapi.model.repository.BookRepository;
+import com.joaovictor.libraryapi.model.repository.LoanRepository;
+import com.joaovictor.libraryapi.service.impl.ActiveLoanIndex;
+import com.joaovictor.libraryapi.service.impl.BookSearchIndex;
+import org.assertj.core.api.Assertions;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({"test", "reactive"})
+public class ReactiveRoutesTest {
+
+    static final String BOOK_API = "/reactive/api/books";
+    static final String LOAN_API = "/reactive/api/loans";
+
+    @Autowired
+    WebTestClient client;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    ActiveLoanIndex activeLoans;
+
+    @Autowired
+    BookSearchIndex searchIndex;
+
+    @AfterEach
+    public void tearDown() {
+        loanRepository.deleteAll();
+        bookRepository.deleteAll();
+        activeLoans.rebuild();
+        searchIndex.rebuild();
+    }
+
+    @Test
+    @DisplayName("Deve criar um livro e obtê-lo pela API reativa.")
+    public void createAndGetBookTest() {
+        BookDTO created = client.post().uri(BOOK_API)
+                .bodyValue(BookDTO.builder().title("As aventuras").author("Artur").isbn("r-001").build())
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(BookDTO.class).returnResult().getResponseBody();
+
+        client.get().uri(BOOK_API + "/" + created.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("id").isEqualTo(created.getId())
+                .jsonPath("isbn").isEqualTo("r-001");
+    }
+
+    @Test
+    @DisplayName("Deve manter as regras de validação e de isbn duplicado na API reativa.")
+    public void createInvalidBookTest() {
+        bookRepository.save(Book.builder().title("As aventuras").author("Artur").isbn("r-001").build());
+
+        client.post().uri(BOOK_API)
+                .bodyValue(BookDTO.builder().title("Outro").author("Fulano").isbn("r-001").build())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("errors[0]").isEqualTo("Isbn já cadastrado.");
+
+        client.post().uri(BOOK_API)
+                .bodyValue(new BookDTO())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("errors", Matchers.hasSize(3));
+
+        client.get().uri(BOOK_API + "/999999")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("Deve transmitir os livros filtrados como NDJSON.")
+    public void streamBooksTest() {
+        for (int i = 0; i < 30; i++) {
+            bookRepository.save(Book.builder().title(i % 2 == 0 ? "Aventura " + i : "Drama " + i).author("Artur").isbn("r-" + i).build());
+        }
+
+        List<BookDTO> books = client.get().uri(BOOK_API + "?title=AVENTURA")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(BookDTO.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        Assertions.assertThat(books).hasSize(15).allMatch(book -> book.getTitle().startsWith("Aventura"));
+    }
+
+    @Test
+    @DisplayName("Deve emprestar um livro pela API reativa e recusar o segundo empréstimo.")
+    public void createLoanTest() {
+        bookRepository.save(Book.builder().title("As aventuras").author("Artur").isbn("r-001").build());
+        LoanDTO loan = LoanDTO.builder().isbn("r-001").custumer("Fulano").build();
+
+        client.post().uri(LOAN_API).bodyValue(loan)
+                .exchange()
+                .expectStatus().isCreated();
+
+        client.post().uri(LOAN_API).bodyValue(loan)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("errors[0]").isEqualTo("Book já emprestado.");
+
+        client.post().uri(LOAN_API).bodyValue(LoanDTO.builder().isbn("inexistente").custumer("Fulano").build())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("errors[0]").isEqualTo("Book não encontrado para o isbn informado.");
+
+        client.get().uri(LOAN_API + "?customer=Fulano")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(LoanDTO.class).hasSize(1)
+                .value(loans -> Assertions.assertThat(loans.get(0).getBook().getIsbn()).isEqualTo("r-001"));
+    }
+}
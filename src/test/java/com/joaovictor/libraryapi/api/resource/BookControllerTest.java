@@ -2,6 +2,8 @@ package com.joaovictor.libraryapi.api.resource;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.joaovictor.libraryapi.api.dto.BookDTO;
+import com.joaovictor.libraryapi.api.mapper.BookMapperImpl;
+import com.joaovictor.libraryapi.api.mapper.LoanMapperImpl;
 import com.joaovictor.libraryapi.exception.BusinessException;
 import com.joaovictor.libraryapi.model.entity.Book;
 import com.joaovictor.libraryapi.service.BookService;
@@ -16,9 +18,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -29,11 +34,13 @@ import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")     // Roda os testes somente no contexto de teste
 @WebMvcTest(controllers = BookController.class)  // testa somente o comportamento da api, controllers para indicar que somente deve instanciar determinado controller
 @AutoConfigureMockMvc       // Faz uma configuração para controle da injeção de dependencias
+@Import({BookMapperImpl.class, LoanMapperImpl.class})
 public class BookControllerTest {
 
     static String BOOK_API = "/api/books";
@@ -134,6 +141,48 @@ public class BookControllerTest {
 
     }
 
+    @Test
+    @DisplayName("Deve informar a versão do livro no ETag.")
+    public void getBookETagTest() throws Exception {
+        Book book = createNewBook();
+        book.setVersion(3L);
+        BDDMockito.given(this.service.getById(1L)).willReturn(Optional.of(book));
+
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"3\""));
+    }
+
+    @Test
+    @DisplayName("Deve responder 304 pela versão do livro, sem carregá-lo, quando o ETag não mudou.")
+    public void getBookNotModifiedTest() throws Exception {
+        BDDMockito.given(this.service.getVersionById(1L)).willReturn(Optional.of(3L));
+
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1")).header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(MockMvcResultMatchers.content().string(""));
+
+        Mockito.verify(this.service, Mockito.never()).getById(Mockito.anyLong());
+    }
+
+    @Test
+    @DisplayName("Deve retornar o livro quando o ETag informado estiver desatualizado.")
+    public void getBookModifiedTest() throws Exception {
+        Book book = createNewBook();
+        book.setVersion(4L);
+        BDDMockito.given(this.service.getVersionById(1L)).willReturn(Optional.of(4L));
+        BDDMockito.given(this.service.getById(1L)).willReturn(Optional.of(book));
+
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1")).header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"4\""))
+                .andExpect(MockMvcResultMatchers.jsonPath("title").value(book.getTitle()));
+    }
+
     @Test
     @DisplayName("Deve retornar um resource not found quando o livro procurado não existir.")
     public void bookNotFoundTest() throws Exception {
@@ -203,7 +252,7 @@ public class BookControllerTest {
                 .author("Artur")
                 .isbn("321")
                 .build();
-        BDDMockito.given(this.service.update(updatingBook)).willReturn(updatedBook);
+        BDDMockito.given(this.service.update(Mockito.any(Book.class))).willReturn(updatedBook);
 
         //execucao (when)
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
@@ -221,6 +270,44 @@ public class BookControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("isbn").value("321"));
     }
 
+    @Test
+    @DisplayName("Deve retornar 412 ao atualizar um livro com If-Match de outra versão.")
+    public void updateBookPreconditionFailedTest() throws Exception {
+        Book book = createNewBook();
+        book.setVersion(2L);
+        BDDMockito.given(this.service.getById(1L)).willReturn(Optional.of(book));
+
+        mvc
+                .perform(MockMvcRequestBuilders.put(BOOK_API.concat("/1"))
+                        .header(HttpHeaders.IF_MATCH, "\"1\"")
+                        .content(new ObjectMapper().writeValueAsString(createNewBookDTO()))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isPreconditionFailed())
+                .andExpect(MockMvcResultMatchers.jsonPath("errors[0]").value("Book alterado por outra requisição."));
+
+        Mockito.verify(this.service, Mockito.never()).update(Mockito.any(Book.class));
+    }
+
+    @Test
+    @DisplayName("Deve atualizar um livro com If-Match da versão atual e informar o novo ETag.")
+    public void updateBookIfMatchTest() throws Exception {
+        Book book = createNewBook();
+        book.setVersion(2L);
+        BDDMockito.given(this.service.getById(1L)).willReturn(Optional.of(book));
+        Book updatedBook = Book.builder().id(1L).title("As Aventuras").author("Artur").isbn("001").version(3L).build();
+        BDDMockito.given(this.service.update(Mockito.any(Book.class))).willReturn(updatedBook);
+
+        mvc
+                .perform(MockMvcRequestBuilders.put(BOOK_API.concat("/1"))
+                        .header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .content(new ObjectMapper().writeValueAsString(createNewBookDTO()))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"3\""));
+
+        Mockito.verify(this.service).update(Mockito.argThat(changes -> changes.getVersion() == 2L && changes != book));
+    }
+
     @Test
     @DisplayName("Deve retornar resource not found ao tentar atualizar um livro inexistente.")
     public void updateBookNonExistentTest() throws Exception {
@@ -270,6 +357,238 @@ public class BookControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("pageable.pageNumber").value(0));
     }
 
+    @Test
+    @DisplayName("Deve responder 304 ao filtrar livros quando a página não mudou.")
+    public void findBooksNotModifiedTest() throws Exception {
+        Book book = createNewBook();
+        book.setVersion(0L);
+        BDDMockito.given(this.service.find(Mockito.any(Book.class), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<Book>(List.of(book), PageRequest.of(0, 10), 1));
+
+        String eTag = mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("?title=Aventuras")))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("?title=Aventuras")).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(MockMvcResultMatchers.status().isNotModified());
+
+        book.setVersion(1L);
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("?title=Aventuras")).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, Matchers.not(eTag)));
+    }
+
+    @Test
+    @DisplayName("Deve filtrar livros por cursor sem executar a contagem.")
+    public void findBooksByCursorTest() throws Exception {
+        Book book = Book.builder().id(7L).title("As Aventuras").author("Artur").isbn("001").build();
+        BDDMockito.given(this.service.findAfter(Mockito.any(Book.class), Mockito.eq(5L), Mockito.eq(1)))
+                .willReturn(new SliceImpl<>(List.of(book), PageRequest.of(0, 1), true));
+
+        String cursor = Cursor.encode(5L);
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?author=Artur&size=1&cursor=" + cursor))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc
+                .perform(request)
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("content[0].id").value(7))
+                .andExpect(MockMvcResultMatchers.jsonPath("size").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("nextCursor").value(Cursor.encode(7L)))
+                .andExpect(MockMvcResultMatchers.jsonPath("totalElements").doesNotExist());
+
+        Mockito.verify(this.service, Mockito.never()).find(Mockito.any(Book.class), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Deve retornar erro ao filtrar livros com cursor inválido.")
+    public void findBooksByInvalidCursorTest() throws Exception {
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?cursor=invalido"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc
+                .perform(request)
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("errors[0]").value("Cursor inválido."));
+    }
+
+    @Test
+    @DisplayName("Deve informar a disponibilidade de um livro.")
+    public void bookAvailabilityTest() throws Exception {
+        BDDMockito.given(service.getVersionById(1L)).willReturn(Optional.of(0L));
+        BDDMockito.given(loanService.isAvailable(1L)).willReturn(Optional.of(false));
+
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1/availability")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("bookId").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("available").value(false));
+    }
+
+    @Test
+    @DisplayName("Deve retornar serviço indisponível enquanto o índice de empréstimos é carregado.")
+    public void bookAvailabilityIndexNotReadyTest() throws Exception {
+        BDDMockito.given(service.getVersionById(1L)).willReturn(Optional.of(0L));
+        BDDMockito.given(loanService.isAvailable(1L)).willReturn(Optional.empty());
+
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1/availability")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isServiceUnavailable());
+    }
+
+    @Test
+    @DisplayName("Deve retornar resource not found ao consultar a disponibilidade de um livro inexistente.")
+    public void bookAvailabilityNotFoundTest() throws Exception {
+        BDDMockito.given(service.getVersionById(1L)).willReturn(Optional.empty());
+        BDDMockito.given(loanService.isAvailable(1L)).willReturn(Optional.of(true));
+
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1/availability")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Deve criar livros em lote informando o resultado de cada item.")
+    public void createBooksInBatchTest() throws Exception {
+        BookDTO valid = createNewBookDTO();
+        BookDTO duplicated = BookDTO.builder().title("Outro").author("Outro").isbn("002").build();
+        BookDTO invalid = BookDTO.builder().title("Sem isbn").author("Outro").build();
+        String json = new ObjectMapper().writeValueAsString(List.of(valid, duplicated, invalid));
+
+        BDDMockito.given(this.service.saveAll(Mockito.anyList())).willAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+            Book saved = books.get(0);
+            saved.setId(10L);
+            return List.of(saved);
+        });
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/batch"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(json);
+
+        mvc
+                .perform(request)
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("created").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("rejected").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("items", Matchers.hasSize(3)))
+                .andExpect(MockMvcResultMatchers.jsonPath("items[0].status").value("CREATED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("items[0].id").value(10))
+                .andExpect(MockMvcResultMatchers.jsonPath("items[1].status").value("REJECTED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("items[1].errors[0]").value("Isbn já cadastrado."))
+                .andExpect(MockMvcResultMatchers.jsonPath("items[2].status").value("REJECTED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("items[2].errors[0]").value("ISBN não pode estar vazio."));
+
+        Mockito.verify(this.service, Mockito.times(1)).saveAll(Mockito.anyList());
+    }
+
+    @Test
+    @DisplayName("Deve criar livros em lote a partir de um stream NDJSON.")
+    public void createBooksInBatchFromNdjsonTest() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        String ndjson = mapper.writeValueAsString(createNewBookDTO()) + "\n"
+                + mapper.writeValueAsString(BookDTO.builder().title("Outro").author("Outro").isbn("002").build()) + "\n";
+
+        BDDMockito.given(this.service.saveAll(Mockito.anyList())).willAnswer(invocation -> invocation.getArgument(0));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/batch"))
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(ndjson);
+
+        mvc
+                .perform(request)
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("created").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("rejected").value(0));
+    }
+
+    @Test
+    @DisplayName("Deve gravar os livros lidos e indicar a posição do conteúdo inválido no meio do stream.")
+    public void createBooksInBatchWithInvalidContentTest() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        String ndjson = mapper.writeValueAsString(createNewBookDTO()) + "\n"
+                + "{\"title\": \"Outro\", \n";
+
+        BDDMockito.given(this.service.saveAll(Mockito.anyList())).willAnswer(invocation -> invocation.getArgument(0));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/batch"))
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(ndjson);
+
+        mvc
+                .perform(request)
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("created").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("rejected").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("items[0].status").value("CREATED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("items[1].index").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("items[1].status").value("REJECTED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("items[1].errors[0]").value("Conteúdo inválido; os livros seguintes não foram lidos."));
+    }
+    @Test
+    @DisplayName("Deve exportar o catálogo em NDJSON.")
+    public void exportBooksAsNdjsonTest() throws Exception {
+        BDDMockito.willAnswer(invocation -> {
+            Consumer<BookDTO> consumer = invocation.getArgument(0);
+            consumer.accept(createNewBookDTO());
+            consumer.accept(BookDTO.builder().id(2L).title("Outro").author("Outro").isbn("002").build());
+            return null;
+        }).given(this.service).exportAll(Mockito.any());
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/export"));
+
+        mvc
+                .perform(request)
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(MockMvcResultMatchers.content().string(
+                        "{\"id\":1,\"title\":\"As Aventuras\",\"author\":\"Artur\",\"isbn\":\"001\"}\n"
+                                + "{\"id\":2,\"title\":\"Outro\",\"author\":\"Outro\",\"isbn\":\"002\"}\n"));
+    }
+
+    @Test
+    @DisplayName("Deve exportar um catálogo vazio em NDJSON sem conteúdo.")
+    public void exportEmptyCatalogueAsNdjsonTest() throws Exception {
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/export"));
+
+        mvc
+                .perform(request)
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string(""));
+    }
+
+    @Test
+    @DisplayName("Deve exportar o catálogo em CSV.")
+    public void exportBooksAsCsvTest() throws Exception {
+        BDDMockito.willAnswer(invocation -> {
+            Consumer<BookDTO> consumer = invocation.getArgument(0);
+            consumer.accept(BookDTO.builder().id(1L).title("Aventuras, \"volume 1\"").author("Artur").isbn("001").build());
+            return null;
+        }).given(this.service).exportAll(Mockito.any());
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/export?format=csv"));
+
+        mvc
+                .perform(request)
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string(
+                        "id,title,author,isbn\n1,\"Aventuras, \"\"volume 1\"\"\",Artur,001\n"));
+    }
 
     private Book createNewBook() {
         return Book.builder().id(1L).title("As Aventuras").author("Artur").isbn("001").build();
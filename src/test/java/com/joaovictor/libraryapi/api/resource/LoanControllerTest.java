@@ -3,26 +3,33 @@ package com.joaovictor.libraryapi.api.resource;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.joaovictor.libraryapi.api.dto.LoanDTO;
 import com.joaovictor.libraryapi.api.dto.LoanFilterDTO;
+import com.joaovictor.libraryapi.api.dto.LoanReturnsDTO;
 import com.joaovictor.libraryapi.api.dto.ReturnedLoanDTO;
+import com.joaovictor.libraryapi.api.mapper.BookMapperImpl;
+import com.joaovictor.libraryapi.api.mapper.LoanMapperImpl;
 import com.joaovictor.libraryapi.exception.BusinessException;
 import com.joaovictor.libraryapi.model.entity.Book;
 import com.joaovictor.libraryapi.model.entity.Loan;
 import com.joaovictor.libraryapi.service.BookService;
 import com.joaovictor.libraryapi.service.LoanService;
 import com.joaovictor.libraryapi.service.LoanServiceTest;
+import org.assertj.core.api.Assertions;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.BDDMockito;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -39,6 +46,7 @@ import java.util.Optional;
 @ActiveProfiles("test")
 @WebMvcTest(controllers = LoanController.class)
 @AutoConfigureMockMvc
+@Import({LoanMapperImpl.class, BookMapperImpl.class})
 public class LoanControllerTest {
 
     static final String LOAN_API = "/api/loans";
@@ -74,6 +82,24 @@ public class LoanControllerTest {
                 .andExpect(MockMvcResultMatchers.content().string("1"));
     }
 
+    @Test
+    @DisplayName("Deve realizar um empréstimo com o prazo em dias informado.")
+    public void createLoanWithLoanDaysTest() throws Exception {
+        LoanDTO loanDTO = LoanDTO.builder().isbn("123").custumer("Fulano").loanDays(14).build();
+        String json = new ObjectMapper().writeValueAsString(loanDTO);
+
+        Book book = Book.builder().id(1L).isbn("123").build();
+        BDDMockito.given(bookService.getBookByIsbn("123")).willReturn(Optional.of(book));
+        BDDMockito.given(loanService.save(Mockito.any(Loan.class))).willReturn(Loan.builder().id(1L).book(book).build());
+
+        mvc.perform(MockMvcRequestBuilders.post(LOAN_API).contentType(MediaType.APPLICATION_JSON).content(json))
+                .andExpect(MockMvcResultMatchers.status().isCreated());
+
+        ArgumentCaptor<Loan> saved = ArgumentCaptor.forClass(Loan.class);
+        Mockito.verify(loanService).save(saved.capture());
+        Assertions.assertThat(saved.getValue().getDueDate()).isEqualTo(LocalDate.now().plusDays(14));
+    }
+
     @Test
     @DisplayName("Deve retornar erro ao tentar fazer empréstimo de um livro inexistente.")
     public void invalidIsbnCreateLoanTest() throws Exception {
@@ -121,10 +147,8 @@ public class LoanControllerTest {
     public void returnBookTest() throws Exception {
         //cenario ( returned: true )
         ReturnedLoanDTO dto = ReturnedLoanDTO.builder().returned(true).build();
-        Loan loan = Loan.builder().id(1L).build();
 
-        BDDMockito.given(loanService.getById(Mockito.anyLong()))
-                .willReturn(Optional.of(loan));
+        BDDMockito.given(loanService.returnLoan(1L, true)).willReturn(true);
 
         String json = new ObjectMapper().writeValueAsString(dto);
 
@@ -135,7 +159,8 @@ public class LoanControllerTest {
                         .content(json)
         ).andExpect(MockMvcResultMatchers.status().isOk());
 
-        Mockito.verify(loanService, Mockito.times(1)).update(loan);
+        Mockito.verify(loanService, Mockito.times(1)).returnLoan(1L, true);
+        Mockito.verify(loanService, Mockito.never()).update(Mockito.any(Loan.class));
     }
 
     @Test
@@ -144,8 +169,8 @@ public class LoanControllerTest {
         //cenario ( returned: true )
         ReturnedLoanDTO dto = ReturnedLoanDTO.builder().returned(true).build();
 
-        BDDMockito.given(loanService.getById(Mockito.anyLong()))
-                .willReturn(Optional.empty());
+        BDDMockito.given(loanService.returnLoan(Mockito.anyLong(), Mockito.anyBoolean()))
+                .willReturn(false);
 
         String json = new ObjectMapper().writeValueAsString(dto);
 
@@ -157,6 +182,27 @@ public class LoanControllerTest {
         ).andExpect(MockMvcResultMatchers.status().isNotFound());
     }
 
+    @Test
+    @DisplayName("Deve devolver em massa e informar quantos empréstimos foram devolvidos.")
+    public void returnBooksTest() throws Exception {
+        LoanReturnsDTO dto = LoanReturnsDTO.builder().ids(List.of(1L, 2L)).isbns(List.of("123")).build();
+
+        BDDMockito.given(loanService.returnLoans(dto.getIds(), dto.getIsbns())).willReturn(3L);
+
+        String json = new ObjectMapper().writeValueAsString(dto);
+
+        mvc.perform(
+                MockMvcRequestBuilders.patch(LOAN_API.concat("/returns"))
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json)
+        )
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("returned").value(3));
+
+        Mockito.verify(loanService, Mockito.never()).returnLoan(Mockito.anyLong(), Mockito.anyBoolean());
+    }
+
     @Test
     @DisplayName("Deve filtrar empréstimos.")
     public void findLoansTest() throws Exception {
@@ -180,9 +226,35 @@ public class LoanControllerTest {
                 .perform(request)
                 .andExpect(MockMvcResultMatchers.status().isOk())
                 .andExpect(MockMvcResultMatchers.jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("content[0].custumer").value(loan.getCustomer()))
+                .andExpect(MockMvcResultMatchers.jsonPath("content[0].isbn").value("321"))
+                .andExpect(MockMvcResultMatchers.jsonPath("content[0].book.id").value(id))
                 .andExpect(MockMvcResultMatchers.jsonPath("totalElements").value(1))
                 .andExpect(MockMvcResultMatchers.jsonPath("pageable.pageSize").value(10))
                 .andExpect(MockMvcResultMatchers.jsonPath("pageable.pageNumber").value(0));
     }
 
+    @Test
+    @DisplayName("Deve filtrar empréstimos por cursor a partir do início.")
+    public void findLoansByCursorTest() throws Exception {
+        Loan loan = LoanServiceTest.createLoan();
+        loan.setId(1L);
+        loan.setBook(Book.builder().id(1L).isbn("321").build());
+
+        BDDMockito.given(this.loanService.findAfter(Mockito.any(LoanFilterDTO.class), Mockito.eq(0L), Mockito.eq(20)))
+                .willReturn(new SliceImpl<>(List.of(loan), PageRequest.of(0, 20), false));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(LOAN_API.concat("?isbn=321&cursor="))
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc
+                .perform(request)
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("content[0].isbn").value("321"))
+                .andExpect(MockMvcResultMatchers.jsonPath("size").value(20))
+                .andExpect(MockMvcResultMatchers.jsonPath("nextCursor").isEmpty());
+    }
+
 }
@@ -0,0 +1,154 @@
+package com.joaovictor.libraryapi.api.resource;
+
+import com.joaovictor.libraryapi.model.entity.Book;
+import com.joaovictor.libraryapi.model.entity.Loan;
+import com.joaovictor.libraryapi.model.repository.BookRepository;
+import com.joaovictor.libraryapi.model.repository.LoanRepository;
+import org.assertj.core.api.Assertions;
+import org.hamcrest.Matchers;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/*
+ * Conta os comandos SQL executados por requisição nas listagens de empréstimos (sem N+1).
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class LoanQueryCountTest {
+
+    static final int LOANS = 5;
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    Statistics statistics;
+
+    Book book;
+
+    @BeforeEach
+    public void setUp() {
+        this.book = bookRepository.save(Book.builder().title("As aventuras").author("Fulano").isbn("321").build());
+        List<Loan> loans = new ArrayList<>();
+        for (int i = 0; i < LOANS; i++) {
+            Book other = bookRepository.save(Book.builder().title("Outro " + i).author("Ciclano").isbn("9" + i).build());
+            loans.add(Loan.builder().book(i % 2 == 0 ? book : other).customer("Fulano")
+                    .loanDate(LocalDate.now()).returned(true).build());
+        }
+        loanRepository.saveAll(loans);
+
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        entityManagerFactory.getCache().evictAll();
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.statistics.clear();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        loanRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Deve filtrar empréstimos com uma consulta para a página e outra para a contagem.")
+    public void findLoansQueryCountTest() throws Exception {
+        mvc
+                .perform(MockMvcRequestBuilders.get("/api/loans?customer=Fulano&page=0&size=4")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("content", Matchers.hasSize(4)))
+                .andExpect(MockMvcResultMatchers.jsonPath("content[*].book.title", Matchers.hasItem("Outro 1")));
+
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve listar os empréstimos de um livro sem carregar o livro novamente por linha.")
+    public void loansByBookQueryCountTest() throws Exception {
+        mvc
+                .perform(MockMvcRequestBuilders.get("/api/books/" + book.getId() + "/loans?page=0&size=2")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("content", Matchers.hasSize(2)))
+                .andExpect(MockMvcResultMatchers.jsonPath("content[*].isbn", Matchers.everyItem(Matchers.is("321"))));
+
+        /* livro por id, página de empréstimos e contagem */
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Deve devolver um empréstimo com a busca do livro e um update, sem regravar a linha inteira.")
+    public void returnLoanQueryCountTest() throws Exception {
+        Loan loan = openLoans(1).get(0);
+        statistics.clear();
+
+        mvc
+                .perform(MockMvcRequestBuilders.patch("/api/loans/" + loan.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"returned\": true}"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        Assertions.assertThat(statistics.getEntityLoadCount()).isZero();
+        Assertions.assertThat(loanRepository.findById(loan.getId()).get().getReturned()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Deve devolver em massa com um número de comandos que não depende da quantidade de empréstimos.")
+    public void returnLoansQueryCountTest() throws Exception {
+        List<Loan> loans = openLoans(20);
+        String ids = loans.stream().map(loan -> loan.getId().toString()).collect(Collectors.joining(","));
+        statistics.clear();
+
+        mvc
+                .perform(MockMvcRequestBuilders.patch("/api/loans/returns")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\": [" + ids + "], \"isbns\": [\"321\"]}"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("returned").value(20));
+
+        /* ids: livros em aberto, releitura sob os locks e update; isbns: livros em aberto (nenhum) */
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+        Assertions.assertThat(loanRepository.countActiveLoans()).isZero();
+    }
+
+    private List<Loan> openLoans(int size) {
+        List<Loan> loans = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Book other = bookRepository.save(Book.builder().title("Emprestado " + i).author("Ciclano").isbn("8" + i).build());
+            loans.add(Loan.builder().book(other).customer("Beltrano").loanDate(LocalDate.now()).build());
+        }
+        return loanRepository.saveAll(loans);
+    }
+}
@@ -0,0 +1,131 @@
+package com.joaovictor.libraryapi.config;
+
+import com.joaovictor.libraryapi.exception.BusinessException;
+import com.joaovictor.libraryapi.model.entity.Book;
+import com.joaovictor.libraryapi.model.entity.Loan;
+import com.joaovictor.libraryapi.model.repository.BookRepository;
+import com.joaovictor.libraryapi.model.repository.LoanRepository;
+import com.joaovictor.libraryapi.service.BookService;
+import com.joaovictor.libraryapi.service.LoanService;
+import com.joaovictor.libraryapi.service.ScheduleService;
+import com.joaovictor.libraryapi.service.impl.OverdueLoanTracker;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.time.LocalDate;
+
+@SpringBootTest
+@AutoConfigureMetrics
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class MetricsConfigTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    BookService bookService;
+
+    @Autowired
+    ScheduleService scheduleService;
+
+    @Autowired
+    LoanService loanService;
+
+    @Autowired
+    OverdueLoanTracker overdueLoans;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    /* o contexto é compartilhado com testes que gravam empréstimos direto no repositório */
+    @BeforeEach
+    public void setUp() {
+        overdueLoans.rebuild();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        loanRepository.deleteAll();
+        bookRepository.deleteAll();
+        overdueLoans.rebuild();
+    }
+
+    @Test
+    @DisplayName("Deve medir os métodos dos serviços e contar as recusas por regra de negócio.")
+    public void serviceTimerAndRejectionCounterTest() {
+        bookService.save(Book.builder().title("As aventuras").author("Fulano").isbn("m-001").build());
+        Assertions.assertThatThrownBy(() -> bookService.save(Book.builder().title("Outro").author("Fulano").isbn("m-001").build()))
+                .isInstanceOf(BusinessException.class);
+
+        Assertions.assertThat(meterRegistry.get("library.service")
+                .tags("class", "BookServiceImpl", "method", "save", "exception", "none").timer().count()).isEqualTo(1);
+        Assertions.assertThat(meterRegistry.get("library.service")
+                .tags("class", "BookServiceImpl", "method", "save", "exception", "BusinessException").timer().count()).isEqualTo(1);
+        Assertions.assertThat(meterRegistry.get("library.business.rejections")
+                .tag("reason", "Isbn já cadastrado.").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve informar os empréstimos em aberto pelo tracker, sem consultar o banco a cada coleta.")
+    public void activeLoansGaugeTest() {
+        Book book = bookRepository.save(Book.builder().title("As aventuras").author("Fulano").isbn("m-001").build());
+        Book other = bookRepository.save(Book.builder().title("Outro").author("Fulano").isbn("m-002").build());
+        loanService.save(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build());
+        Loan returned = loanService.save(Loan.builder().book(other).customer("Fulano").loanDate(LocalDate.now()).build());
+        returned.setReturned(true);
+        loanService.update(returned);
+
+        Assertions.assertThat(meterRegistry.get("library.loans.active").gauge().value()).isEqualTo(1);
+        Assertions.assertThat(meterRegistry.find("spring.data.repository.invocations")
+                .tag("method", "countActiveLoans").timer()).isNull();
+
+        /* um empréstimo gravado sem o serviço só aparece na contagem depois da recarga */
+        loanRepository.save(Loan.builder().book(other).customer("Ciclano").loanDate(LocalDate.now()).build());
+        overdueLoans.rebuild();
+        Assertions.assertThat(meterRegistry.get("library.loans.active").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve medir a duração do job de empréstimos atrasados.")
+    public void lateLoansJobTimerTest() {
+        scheduleService.senMailToLateLoans();
+
+        Assertions.assertThat(meterRegistry.get("library.lateloans.job").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve expor os histogramas de latência no formato do Prometheus.")
+    public void prometheusEndpointTest() throws Exception {
+        bookService.getById(1L);
+        mvc.perform(MockMvcRequestBuilders.get("/api/books/1"));
+
+        mvc
+                .perform(MockMvcRequestBuilders.get("/actuator/prometheus"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string(Matchers.allOf(
+                        Matchers.containsString("library_service_seconds_bucket{class=\"BookServiceImpl\""),
+                        Matchers.containsString("spring_data_repository_invocations_seconds_bucket{"),
+                        Matchers.containsString("http_server_requests_seconds_bucket{"),
+                        Matchers.containsString("library_loans_active "))));
+    }
+}
@@ -0,0 +1,118 @@
+package com.joaovictor.libraryapi.config;
+
+import com.joaovictor.libraryapi.model.entity.Book;
+import com.joaovictor.libraryapi.model.repository.BookRepository;
+import org.assertj.core.api.Assertions;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
+
+@SpringBootTest(properties = "application.sql.slow-query-threshold=0ms")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@ExtendWith(OutputCaptureExtension.class)
+public class SqlStatementsConfigTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    SqlStatementsEndpoint endpoint;
+
+    Book book;
+
+    @BeforeEach
+    public void setUp() {
+        this.book = bookRepository.save(Book.builder().title("As aventuras").author("Fulano").isbn("sql-001").build());
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        entityManagerFactory.getCache().evictAll();
+        endpoint.reset();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Deve informar nos headers os comandos SQL e o tempo de banco da requisição.")
+    public void statementHeadersTest() throws Exception {
+        mvc
+                .perform(MockMvcRequestBuilders.get("/api/books/" + book.getId()))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(SqlStatementsFilter.STATEMENTS_HEADER, "1"))
+                .andExpect(MockMvcResultMatchers.header().string(SqlStatementsFilter.TIME_HEADER, Matchers.matchesPattern("\\d+\\.\\d{3}")));
+
+        /* segunda leitura vem do cache "books" */
+        mvc
+                .perform(MockMvcRequestBuilders.get("/api/books/" + book.getId()))
+                .andExpect(MockMvcResultMatchers.header().string(SqlStatementsFilter.STATEMENTS_HEADER, "0"));
+    }
+
+    @Test
+    @DisplayName("Deve registrar as consultas acima do limite com os parâmetros.")
+    public void slowQueryLogTest(CapturedOutput output) throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/api/books?isbn=sql-001"));
+
+        Assertions.assertThat(output.getOut()).containsPattern("SLOW QUERY \\(\\d+ MS\\): select .* PARAMS \\[sql-001");
+    }
+
+    @Test
+    @DisplayName("Deve somar os comandos SQL por endpoint no actuator.")
+    public void endpointTotalsTest() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/api/books/" + book.getId()));
+        mvc.perform(MockMvcRequestBuilders.get("/api/books/" + book.getId()));
+        mvc.perform(MockMvcRequestBuilders.get("/api/books/999999"));
+
+        mvc
+                .perform(MockMvcRequestBuilders.get("/actuator/sqlstatements"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$['GET /api/books/{id}'].requests").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$['GET /api/books/{id}'].statements").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$['GET /api/books/{id}'].maxStatements").value(1));
+    }
+
+    @Test
+    @DisplayName("Não deve informar os headers quando desligados, mantendo os totais por endpoint.")
+    public void withoutHeadersTest() throws Exception {
+        SqlStatementListener listener = new SqlStatementListener(Duration.ofSeconds(1));
+        SqlStatementsEndpoint totals = new SqlStatementsEndpoint();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/books/1");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/books/{id}");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        new SqlStatementsFilter(listener, totals, false).doFilter(request, response, new MockFilterChain());
+
+        Assertions.assertThat(response.getHeader(SqlStatementsFilter.STATEMENTS_HEADER)).isNull();
+        Assertions.assertThat(totals.statements().get("GET /api/books/{id}").getRequests()).isEqualTo(1);
+    }
+}
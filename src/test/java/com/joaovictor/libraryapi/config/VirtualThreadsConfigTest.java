@@ -0,0 +1,49 @@
+package com.joaovictor.libraryapi.config;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "application.threads.virtual.enabled=true")
+@ActiveProfiles("test")
+public class VirtualThreadsConfigTest {
+
+    @Autowired
+    ServletWebServerApplicationContext context;
+
+    @Autowired
+    TaskScheduler taskScheduler;
+
+    @Test
+    @DisplayName("Deve atender as requisições do Tomcat em threads virtuais.")
+    public void tomcatExecutorTest() throws Exception {
+        TomcatWebServer webServer = (TomcatWebServer) context.getWebServer();
+        Executor executor = webServer.getTomcat().getConnector().getProtocolHandler().getExecutor();
+
+        CompletableFuture<Boolean> virtual = CompletableFuture.supplyAsync(() -> Thread.currentThread().isVirtual(), executor);
+
+        Assertions.assertThat(virtual.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Deve executar as tarefas agendadas em threads virtuais.")
+    public void schedulerTest() throws Exception {
+        CompletableFuture<Boolean> virtual = new CompletableFuture<>();
+
+        taskScheduler.schedule(() -> virtual.complete(Thread.currentThread().isVirtual()), new Date());
+
+        Assertions.assertThat(virtual.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+}
@@ -8,10 +8,17 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Slice;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
@@ -88,6 +95,61 @@ public class BookRepositoryTest {
         Assertions.assertThat(deletedFounded).isNull();
     }
 
+    @Test
+    @DisplayName("Deve retornar somente os isbns já cadastrados.")
+    public void findExistingIsbnsTest() {
+        testEntityManager.persist(createNewBook());
+
+        Set<String> existing = this.bookRepository.findExistingIsbns(List.of("123", "456"));
+
+        Assertions.assertThat(existing).containsExactly("123");
+    }
+
+    @Test
+    @DisplayName("Deve percorrer as colunas de todos os livros.")
+    public void streamAllRowsTest() {
+        Book book = createNewBook();
+        testEntityManager.persist(book);
+
+        List<BookRepository.BookRow> books;
+        try (Stream<BookRepository.BookRow> stream = this.bookRepository.streamAllRows()) {
+            books = stream.collect(Collectors.toList());
+        }
+
+        Assertions.assertThat(books).hasSize(1);
+        Assertions.assertThat(books.get(0).getId()).isEqualTo(book.getId());
+        Assertions.assertThat(books.get(0).getIsbn()).isEqualTo(book.getIsbn());
+    }
+
+    @Test
+    @DisplayName("Deve buscar os livros filtrados a partir do último id informado.")
+    public void findAfterTest() {
+        Book first = testEntityManager.persist(Book.builder().isbn("1").author("Fulano").title("Primeiro").build());
+        Book second = testEntityManager.persist(Book.builder().isbn("2").author("Fulano").title("Segundo").build());
+        testEntityManager.persist(Book.builder().isbn("3").author("Ciclano").title("Terceiro").build());
+        Book fourth = testEntityManager.persist(Book.builder().isbn("4").author("Fulano").title("Quarto").build());
+        Example<Book> example = Example.of(Book.builder().author("fulano").build(), ExampleMatcher.matching().withIgnoreCase());
+
+        Slice<Book> firstSlice = this.bookRepository.findAfter(example, 0L, 2);
+        Slice<Book> lastSlice = this.bookRepository.findAfter(example, second.getId(), 2);
+
+        Assertions.assertThat(firstSlice.getContent()).containsExactly(first, second);
+        Assertions.assertThat(firstSlice.hasNext()).isTrue();
+        Assertions.assertThat(lastSlice.getContent()).containsExactly(fourth);
+        Assertions.assertThat(lastSlice.hasNext()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve obter a versão do livro, incrementada a cada atualização.")
+    public void findVersionByIdTest() {
+        Book book = testEntityManager.persistFlushFind(createNewBook());
+        book.setTitle("Outro título");
+        testEntityManager.flush();
+
+        Assertions.assertThat(this.bookRepository.findVersionById(book.getId())).contains(1L);
+        Assertions.assertThat(this.bookRepository.findVersionById(-1L)).isEmpty();
+    }
+
     public static Book createNewBook() {
         return Book.builder()
                 .isbn("123")
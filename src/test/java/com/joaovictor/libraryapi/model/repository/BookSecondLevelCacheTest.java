@@ -0,0 +1,71 @@
+package com.joaovictor.libraryapi.model.repository;
+
+import com.joaovictor.libraryapi.model.entity.Book;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.EntityManagerFactory;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class BookSecondLevelCacheTest {
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    Statistics statistics;
+
+    Book book;
+
+    @BeforeEach
+    public void setUp() {
+        this.book = bookRepository.save(Book.builder().title("As aventuras").author("Fulano").isbn("l2-123").build());
+        entityManagerFactory.getCache().evictAll();
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.statistics.clear();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Deve obter o livro por id do cache de segundo nível a partir da segunda consulta.")
+    public void findByIdFromSecondLevelCacheTest() {
+        bookRepository.findById(book.getId());
+        Book cached = bookRepository.findById(book.getId()).get();
+
+        Assertions.assertThat(cached.getTitle()).isEqualTo("As aventuras");
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        Assertions.assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+        Assertions.assertThat(meterRegistry.find("hibernate.second.level.cache.requests").tag("result", "hit").meters())
+                .isNotEmpty();
+    }
+
+    @Test
+    @DisplayName("Não deve cachear a consulta por isbn no Hibernate: ela já passa pelo cache booksByIsbn do BookService.")
+    public void findByIsbnWithoutQueryCacheTest() {
+        bookRepository.findByIsbn("l2-123");
+        bookRepository.findByIsbn("l2-123");
+
+        Assertions.assertThat(statistics.getQueryCachePutCount()).isZero();
+        Assertions.assertThat(statistics.getQueryCacheHitCount()).isZero();
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+}
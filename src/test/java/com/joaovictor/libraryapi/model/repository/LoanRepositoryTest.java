@@ -11,12 +11,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import javax.persistence.EntityManager;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.joaovictor.libraryapi.model.repository.BookRepositoryTest.createNewBook;
 
@@ -31,6 +34,8 @@ class LoanRepositoryTest {
     @Autowired
     EntityManager entityManager;
 
+    int createdBooks;
+
     @Test
     @DisplayName("Deve verificar se existe empréstimo não devolvido para o livro.")
     public void existsByBookAndNotReturnedTest() {
@@ -57,30 +62,150 @@ class LoanRepositoryTest {
     }
 
     @Test
-    @DisplayName("Deve obter empréstimos cuja data empréstimo for menor ou igual a 3 dias atrás e não retornados.")
-    public void findByLoansDateLessThanAndNotReturnedTest() {
+    @DisplayName("Deve obter empréstimos não retornados cujo prazo já passou.")
+    public void findOverdueLoansTest() {
         Loan loan = createAndPersistLoan(LocalDate.now().minusDays(5));
 
-        List<Loan> result = repository.findByLoansDateLessThanAndNotReturned(LocalDate.now().minusDays(4));
+        List<Loan> result = repository.findOverdueLoans(LocalDate.now());
 
         Assertions.assertThat(result).hasSize(1).contains(loan);
     }
 
     @Test
     @DisplayName("Deve retornar vazio quando não houver empréstimos atrasados.")
-    public void notFindByLoansDateLessThanAndNotReturnedTest() {
+    public void notFindOverdueLoansTest() {
         Loan loan = createAndPersistLoan(LocalDate.now());
 
-        List<Loan> result = repository.findByLoansDateLessThanAndNotReturned(LocalDate.now().minusDays(4));
+        List<Loan> result = repository.findOverdueLoans(LocalDate.now());
 
         Assertions.assertThat(result).isEmpty();
     }
 
+    @Test
+    @DisplayName("Deve considerar o prazo de cada empréstimo e não a data do empréstimo.")
+    public void findOverdueLoansByDueDateTest() {
+        Loan shortLoan = createAndPersistLoan(LocalDate.now().minusDays(1));
+        shortLoan.setDueDate(LocalDate.now().minusDays(1));
+        Loan longLoan = createAndPersistLoan(LocalDate.now().minusDays(10));
+        longLoan.setDueDate(LocalDate.now().plusDays(20));
+        entityManager.flush();
+
+        Assertions.assertThat(repository.findOverdueLoans(LocalDate.now())).containsExactly(shortLoan);
+    }
+
+    @Test
+    @DisplayName("Deve obter os atrasados com o título do livro, ordenados pelo email do cliente sem distinção de maiúsculas.")
+    public void streamOverdueLoanViewsTest() {
+        createAndPersistLoan(LocalDate.now().minusDays(5)).setCustomerEmail("fulano@email.com");
+        createAndPersistLoan(LocalDate.now().minusDays(7)).setCustomerEmail("beltrano@email.com");
+        createAndPersistLoan(LocalDate.now().minusDays(6)).setCustomerEmail(" Fulano@Email.com");
+        createAndPersistLoan(LocalDate.now()).setCustomerEmail("ciclano@email.com");
+        entityManager.flush();
+
+        List<LoanRepository.OverdueLoanView> loans;
+        try (Stream<LoanRepository.OverdueLoanView> stream = repository.streamOverdueLoanViews(LocalDate.now())) {
+            loans = stream.collect(Collectors.toList());
+        }
+
+        Assertions.assertThat(loans).extracting(LoanRepository.OverdueLoanView::getCustomerEmail)
+                .containsExactly("beltrano@email.com", " Fulano@Email.com", "fulano@email.com");
+        Assertions.assertThat(loans).extracting(LoanRepository.OverdueLoanView::getTitle).containsOnly("As aventuras");
+    }
+
+    @Test
+    @DisplayName("Deve obter pelos ids só os atrasados ainda em aberto, ordenados pelo email do cliente.")
+    public void findOverdueLoanViewsByIdsTest() {
+        Loan fulano = createAndPersistLoan(LocalDate.now().minusDays(5));
+        fulano.setCustomerEmail("fulano@email.com");
+        Loan beltrano = createAndPersistLoan(LocalDate.now().minusDays(7));
+        beltrano.setCustomerEmail("Beltrano@email.com");
+        Loan returned = createAndPersistLoan(LocalDate.now().minusDays(6));
+        returned.setCustomerEmail("ciclano@email.com");
+        returned.setReturned(true);
+        Loan onTime = createAndPersistLoan(LocalDate.now());
+        onTime.setCustomerEmail("ciclano@email.com");
+        createAndPersistLoan(LocalDate.now().minusDays(8)).setCustomerEmail("outro@email.com");
+        entityManager.flush();
+
+        List<LoanRepository.OverdueLoanView> loans = repository.findOverdueLoanViewsByIds(
+                List.of(fulano.getId(), beltrano.getId(), returned.getId(), onTime.getId()), LocalDate.now());
+
+        Assertions.assertThat(loans).extracting(LoanRepository.OverdueLoanView::getCustomerEmail)
+                .containsExactly("Beltrano@email.com", "fulano@email.com");
+    }
+
+    @Test
+    @DisplayName("Deve buscar empréstimos pelo isbn ou customer a partir do último id informado.")
+    public void findByBookIsbnOrCustomerAfterTest() {
+        Loan first = createAndPersistLoan(LocalDate.now());
+        Loan second = createAndPersistLoan(LocalDate.now());
+
+        Slice<Loan> firstSlice = repository.findByBookIsbnOrCustomerAfter("321", "Fulano", 0L, PageRequest.of(0, 1));
+        Slice<Loan> lastSlice = repository.findByBookIsbnOrCustomerAfter("321", "Fulano", first.getId(), PageRequest.of(0, 1));
+
+        Assertions.assertThat(firstSlice.getContent()).containsExactly(first);
+        Assertions.assertThat(firstSlice.hasNext()).isTrue();
+        Assertions.assertThat(lastSlice.getContent()).containsExactly(second);
+        Assertions.assertThat(lastSlice.hasNext()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve devolver um empréstimo por update direto apenas quando o estado mudar.")
+    public void updateReturnedTest() {
+        Loan loan = createAndPersistLoan(LocalDate.now());
+        loan.setCustomerEmail("fulano@email.com");
+        entityManager.flush();
+        Long version = loan.getVersion();
+
+        LoanRepository.LoanRef ref = repository.findRefById(loan.getId()).get();
+        Assertions.assertThat(ref.getBookId()).isEqualTo(loan.getBook().getId());
+        Assertions.assertThat(ref.getDueDate()).isEqualTo(loan.getDueDate());
+        Assertions.assertThat(ref.getCustomerEmail()).isEqualTo(loan.getCustomerEmail());
+        Assertions.assertThat(repository.updateReturned(loan.getId(), true)).isEqualTo(1);
+        Assertions.assertThat(repository.updateReturned(loan.getId(), true)).isZero();
+
+        Loan returned = repository.findById(loan.getId()).get();
+        Assertions.assertThat(returned.getReturned()).isTrue();
+        Assertions.assertThat(returned.getVersion()).isEqualTo(version + 1);
+    }
+
+    @Test
+    @DisplayName("Deve devolver em massa pelos ids apenas os empréstimos em aberto, incrementando a versão.")
+    public void returnByIdsTest() {
+        Loan open = createAndPersistLoan(LocalDate.now());
+        Loan closed = createAndPersistLoan(LocalDate.now());
+        closed.setReturned(true);
+        entityManager.flush();
+        Long version = open.getVersion();
+        List<Long> ids = List.of(open.getId(), closed.getId());
+
+        Assertions.assertThat(repository.findOpenLoanRefsByIds(ids))
+                .extracting(LoanRepository.LoanRef::getBookId).containsExactly(open.getBook().getId());
+        Assertions.assertThat(repository.returnByIds(ids)).isEqualTo(1);
+
+        Assertions.assertThat(repository.findOpenLoanRefsByIds(ids)).isEmpty();
+        Assertions.assertThat(repository.findById(open.getId()).get().getVersion()).isEqualTo(version + 1);
+    }
+
+    @Test
+    @DisplayName("Deve obter os empréstimos em aberto dos livros informados pelo isbn.")
+    public void findOpenLoanRefsByIsbnsTest() {
+        Loan loan = createAndPersistLoan(LocalDate.now());
+        createAndPersistLoan(LocalDate.now());
+
+        List<LoanRepository.LoanRef> loans = repository.findOpenLoanRefsByIsbns(List.of(loan.getBook().getIsbn(), "inexistente"));
+
+        Assertions.assertThat(loans).extracting(LoanRepository.LoanRef::getId).containsExactly(loan.getId());
+        Assertions.assertThat(repository.returnByIds(List.of(loans.get(0).getId()))).isEqualTo(1);
+        Assertions.assertThat(repository.countActiveLoans()).isEqualTo(1);
+    }
+
     private Loan createAndPersistLoan(LocalDate loanDate) {
         Book book = createNewBook();
+        book.setIsbn(book.getIsbn() + "-" + createdBooks++); // isbn é único
         entityManager.persist(book);
 
-        Loan loan = Loan.builder().book(book).customer("Fulano").loanDate(loanDate).build();
+        Loan loan = Loan.builder().book(book).customer("Fulano").loanDate(loanDate).dueDate(loanDate.plusDays(3)).build();
         entityManager.persist(loan);
 
         return loan;
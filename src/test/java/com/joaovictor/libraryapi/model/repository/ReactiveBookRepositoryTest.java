@@ -0,0 +1,71 @@
+package com.joaovictor.libraryapi.model.repository;
+
+import com.joaovictor.libraryapi.model.entity.Book;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+@SpringBootTest(properties = "spring.main.web-application-type=reactive")
+@ActiveProfiles({"test", "reactive"})
+public class ReactiveBookRepositoryTest {
+
+    @Autowired
+    ReactiveBookRepository reactiveRepository;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    Book book;
+
+    @BeforeEach
+    public void setUp() {
+        this.book = bookRepository.save(Book.builder().title("As Aventuras 100%").author("Fulano").isbn("rb-001").build());
+        bookRepository.save(Book.builder().title("As aventuras 1000").author("Fulano").isbn("rb-002").build());
+        bookRepository.save(Book.builder().title("Outro livro").author("Ciclano").isbn("rb-003").build());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Deve obter pelo R2DBC um livro gravado pelo JPA.")
+    public void findByIdAndIsbnTest() {
+        StepVerifier.create(reactiveRepository.findById(book.getId()))
+                .expectNextMatches(found -> found.getIsbn().equals("rb-001") && found.getTitle().equals("As Aventuras 100%"))
+                .verifyComplete();
+        StepVerifier.create(reactiveRepository.findByIsbn("inexistente")).verifyComplete();
+        StepVerifier.create(reactiveRepository.existsByIsbn("rb-002")).expectNext(true).verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Deve filtrar como o Example do serviço, tratando % do texto como literal.")
+    public void findTest() {
+        StepVerifier.create(reactiveRepository.find(Book.builder().title("AVENTURAS").build()).map(Book::getIsbn))
+                .expectNext("rb-001", "rb-002")
+                .verifyComplete();
+        StepVerifier.create(reactiveRepository.find(Book.builder().title("100%").author("fulano").build()).map(Book::getIsbn))
+                .expectNext("rb-001")
+                .verifyComplete();
+        StepVerifier.create(reactiveRepository.find(Book.builder().isbn("RB-003").build())).verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Deve entregar as linhas conforme a demanda do assinante.")
+    public void findWithBackpressureTest() {
+        StepVerifier.create(reactiveRepository.find(new Book()).map(Book::getIsbn), 1)
+                .expectNext("rb-001")
+                .expectNoEvent(Duration.ofMillis(50))
+                .thenRequest(2)
+                .expectNext("rb-002", "rb-003")
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,66 @@
+package com.joaovictor.libraryapi.model.repository;
+
+import com.joaovictor.libraryapi.model.entity.Book;
+import com.joaovictor.libraryapi.model.entity.Loan;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+
+@SpringBootTest(properties = "spring.main.web-application-type=reactive")
+@ActiveProfiles({"test", "reactive"})
+public class ReactiveLoanRepositoryTest {
+
+    @Autowired
+    ReactiveLoanRepository reactiveRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    Book book;
+
+    @BeforeEach
+    public void setUp() {
+        this.book = bookRepository.save(Book.builder().title("As aventuras").author("Fulano").isbn("rl-001").build());
+        Book other = bookRepository.save(Book.builder().title("Outro livro").author("Ciclano").isbn("rl-002").build());
+        loanRepository.save(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).returned(true).build());
+        loanRepository.save(Loan.builder().book(other).customer("Beltrano").loanDate(LocalDate.now()).build());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        loanRepository.deleteAll();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Deve buscar empréstimos por isbn ou cliente com o livro preenchido.")
+    public void findByBookIsbnOrCustomerTest() {
+        StepVerifier.create(reactiveRepository.findByBookIsbnOrCustomer("rl-001", null))
+                .expectNextMatches(loan -> loan.getCustomer().equals("Fulano") && loan.getBook().getTitle().equals("As aventuras"))
+                .verifyComplete();
+        StepVerifier.create(reactiveRepository.findByBookIsbnOrCustomer(null, "Beltrano").map(Loan::getCustomer))
+                .expectNext("Beltrano")
+                .verifyComplete();
+        StepVerifier.create(reactiveRepository.findByBook(book.getId()).map(loan -> loan.getBook().getIsbn()))
+                .expectNext("rl-001")
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Deve indicar se o livro tem empréstimo em aberto.")
+    public void existsByBookAndNotReturnedTest() {
+        StepVerifier.create(reactiveRepository.existsByBookAndNotReturned(book.getId())).expectNext(false).verifyComplete();
+        Book other = bookRepository.findByIsbn("rl-002").get();
+        StepVerifier.create(reactiveRepository.existsByBookAndNotReturned(other.getId())).expectNext(true).verifyComplete();
+    }
+}
@@ -0,0 +1,142 @@
+package com.joaovictor.libraryapi.service;
+
+import com.joaovictor.libraryapi.model.entity.Book;
+import com.joaovictor.libraryapi.service.impl.BookCsvImportServiceImpl;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookCsvImportServiceTest {
+
+    @MockBean
+    BookService bookService;
+
+    BookImportService importService;
+
+    List<Book> savedBooks;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setUp() {
+        // pedaços de 64 bytes para forçar a divisão do arquivo entre várias tarefas
+        this.importService = new BookCsvImportServiceImpl(bookService, 64, 2, 4, true);
+        this.savedBooks = Collections.synchronizedList(new ArrayList<>());
+        Mockito.when(bookService.saveAll(Mockito.anyList())).thenAnswer(invocation -> {
+            List<Book> books = new ArrayList<>(invocation.getArgument(0));
+            savedBooks.addAll(books);
+            return books;
+        });
+    }
+
+    @Test
+    @DisplayName("Deve importar os livros válidos de um arquivo CSV.")
+    public void importCsvTest() throws Exception {
+        StringBuilder csv = new StringBuilder("title,author,isbn\n");
+        for (int i = 0; i < 50; i++) {
+            csv.append("Title ").append(i).append(",Author ").append(i).append(",").append(1000 + i).append("\r\n");
+        }
+        Path file = Files.writeString(tempDir.resolve("books.csv"), csv.toString(), StandardCharsets.UTF_8);
+
+        BookImportReport report = importService.importCsv(file);
+
+        Assertions.assertThat(report.getRows()).isEqualTo(50);
+        Assertions.assertThat(report.getImported()).isEqualTo(50);
+        Assertions.assertThat(report.getInvalid()).isZero();
+        Assertions.assertThat(report.getPeakHeapBytes()).isPositive();
+        Assertions.assertThat(savedBooks.stream().map(Book::getIsbn).collect(Collectors.toSet())).hasSize(50);
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar linhas inválidas e tratar campos entre aspas.")
+    public void importCsvWithInvalidRowsTest() throws Exception {
+        String csv = "title,author,isbn\n"
+                + "\"O \"\"Hobbit\"\", volume 1\",Tolkien,978-85\n"
+                + "Sem autor,,123\n"
+                + "Isbn invalido,Fulano,abc\n"
+                + "Campos demais,Fulano,123,extra\n"
+                + "\"Quebra de\n"
+                + "linha\",Fulano,789\n"
+                + "\n"
+                + "Ultimo,Ciclano,456";
+        Path file = Files.writeString(tempDir.resolve("books.csv"), csv, StandardCharsets.UTF_8);
+
+        BookImportReport report = importService.importCsv(file);
+
+        Assertions.assertThat(report.getRows()).isEqualTo(7);
+        Assertions.assertThat(report.getImported()).isEqualTo(2);
+        Assertions.assertThat(report.getInvalid()).isEqualTo(5);
+        Assertions.assertThat(savedBooks)
+                .extracting(Book::getTitle)
+                .containsExactlyInAnyOrder("O \"Hobbit\", volume 1", "Ultimo");
+    }
+
+    @Test
+    @DisplayName("Deve gravar uma única vez o isbn repetido no lote ou em pedaços diferentes do arquivo.")
+    public void importCsvWithDuplicatedIsbnsTest() throws Exception {
+        /* como o BookService: os isbns já gravados ficam de fora, e cada lote chega sem isbn repetido */
+        Set<String> stored = ConcurrentHashMap.newKeySet();
+        Mockito.when(bookService.saveAll(Mockito.anyList())).thenAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+            Assertions.assertThat(books).extracting(Book::getIsbn).doesNotHaveDuplicates();
+            List<Book> saved = books.stream().filter(book -> stored.add(book.getIsbn())).collect(Collectors.toList());
+            savedBooks.addAll(saved);
+            return saved;
+        });
+        StringBuilder csv = new StringBuilder("title,author,isbn\n");
+        for (int i = 0; i < 40; i++) {
+            csv.append("Title ").append(i).append(",Author,").append(1000 + i % 10).append("\n");
+        }
+        csv.append("Repetido,Author,2000\nRepetido,Author,2000\n");
+        Path file = Files.writeString(tempDir.resolve("books.csv"), csv.toString(), StandardCharsets.UTF_8);
+
+        BookImportReport report = importService.importCsv(file);
+
+        Assertions.assertThat(report.getImported()).isEqualTo(11);
+        Assertions.assertThat(report.getDuplicated()).isEqualTo(31);
+        Assertions.assertThat(savedBooks).extracting(Book::getIsbn).doesNotHaveDuplicates().hasSize(11);
+    }
+
+    @Test
+    @DisplayName("Deve regravar livro a livro o lote que violar o isbn único, contando só o conflito como duplicado.")
+    public void importCsvRetriesBatchOnConstraintViolationTest() throws Exception {
+        Mockito.when(bookService.saveAll(Mockito.anyList())).thenAnswer(invocation -> {
+            List<Book> books = new ArrayList<>(invocation.getArgument(0));
+            if (books.stream().anyMatch(book -> book.getIsbn().equals("2000"))) {
+                throw new DataIntegrityViolationException("ux_book_isbn");
+            }
+            savedBooks.addAll(books);
+            return books;
+        });
+        Path file = Files.writeString(tempDir.resolve("books.csv"),
+                "title,author,isbn\nPrimeiro,Fulano,1000\nConflito,Fulano,2000\n", StandardCharsets.UTF_8);
+
+        BookImportReport report = importService.importCsv(file);
+
+        Assertions.assertThat(report.getImported()).isEqualTo(1);
+        Assertions.assertThat(report.getDuplicated()).isEqualTo(1);
+        Assertions.assertThat(report.getFailed()).isZero();
+        Assertions.assertThat(savedBooks).extracting(Book::getIsbn).containsExactly("1000");
+    }
+}
@@ -0,0 +1,131 @@
+package com.joaovictor.libraryapi.service;
+
+import com.joaovictor.libraryapi.model.entity.Book;
+import com.joaovictor.libraryapi.model.repository.BookRepository;
+import com.joaovictor.libraryapi.service.impl.BookSearchIndex;
+import com.joaovictor.libraryapi.service.impl.BookServiceImpl;
+import com.joaovictor.libraryapi.service.impl.IsbnBloomFilter;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Optional;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class BookServiceCacheTest {
+
+    @Autowired
+    BookService bookService;
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @MockBean
+    BookRepository bookRepository;
+
+    @BeforeEach
+    public void setUp() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    @DisplayName("Deve obter o livro pelo isbn do cache a partir da segunda consulta.")
+    public void getBookByIsbnFromCacheTest() {
+        String isbn = "123";
+        Mockito.when(bookRepository.findByIsbn(isbn)).thenReturn(Optional.of(createBook()));
+
+        bookService.getBookByIsbn(isbn);
+        Optional<Book> book = bookService.getBookByIsbn(isbn);
+
+        Assertions.assertThat(book).isPresent();
+        Mockito.verify(bookRepository, Mockito.times(1)).findByIsbn(isbn);
+    }
+
+    @Test
+    @DisplayName("Não deve armazenar no cache a consulta de um isbn inexistente.")
+    public void notCacheMissingIsbnTest() {
+        String isbn = "123";
+        Mockito.when(bookRepository.findByIsbn(isbn)).thenReturn(Optional.empty());
+
+        bookService.getBookByIsbn(isbn);
+        bookService.getBookByIsbn(isbn);
+
+        Mockito.verify(bookRepository, Mockito.times(2)).findByIsbn(isbn);
+    }
+
+    @Test
+    @DisplayName("Deve invalidar o cache ao atualizar um livro.")
+    public void evictCacheOnUpdateTest() {
+        Book book = createBook();
+        Mockito.when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+        Mockito.when(bookRepository.findByIsbn("123")).thenReturn(Optional.of(book));
+        Mockito.when(bookRepository.save(book)).thenReturn(book);
+
+        bookService.getById(1L);
+        bookService.getBookByIsbn("123");
+        bookService.update(book);
+        bookService.getById(1L);
+        bookService.getBookByIsbn("123");
+
+        Mockito.verify(bookRepository, Mockito.times(2)).findById(1L);
+        Mockito.verify(bookRepository, Mockito.times(2)).findByIsbn("123");
+    }
+
+    @Test
+    @DisplayName("Deve obter a versão do livro do cache e invalidá-la ao atualizar o livro.")
+    public void getVersionFromCacheTest() {
+        Book book = createBook();
+        Mockito.when(bookRepository.findVersionById(1L)).thenReturn(Optional.of(0L));
+        Mockito.when(bookRepository.save(book)).thenReturn(book);
+
+        bookService.getVersionById(1L);
+        Optional<Long> version = bookService.getVersionById(1L);
+        bookService.update(book);
+        bookService.getVersionById(1L);
+
+        Assertions.assertThat(version).contains(0L);
+        Mockito.verify(bookRepository, Mockito.times(2)).findVersionById(1L);
+    }
+
+    @Test
+    @DisplayName("Deve invalidar o cache ao deletar um livro.")
+    public void evictCacheOnDeleteTest() {
+        Book book = createBook();
+        Mockito.when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+
+        bookService.getById(1L);
+        bookService.delete(book);
+        bookService.getById(1L);
+
+        Mockito.verify(bookRepository, Mockito.times(2)).findById(1L);
+    }
+
+    private Book createBook() {
+        return Book.builder().id(1L).isbn("123").author("Fulano").title("As aventuras").build();
+    }
+
+    @Configuration
+    @EnableCaching
+    @Import({BookServiceImpl.class, IsbnBloomFilter.class, BookSearchIndex.class})
+    static class CacheTestConfig {
+
+        @Bean
+        public CacheManager cacheManager() {
+            return new CaffeineCacheManager("books", "bookVersions", "booksByIsbn");
+        }
+    }
+}
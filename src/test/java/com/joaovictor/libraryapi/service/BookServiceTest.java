@@ -3,7 +3,9 @@ package com.joaovictor.libraryapi.service;
 import com.joaovictor.libraryapi.model.entity.Book;
 import com.joaovictor.libraryapi.model.repository.BookRepository;
 import com.joaovictor.libraryapi.service.BookService;
+import com.joaovictor.libraryapi.service.impl.BookSearchIndex;
 import com.joaovictor.libraryapi.service.impl.BookServiceImpl;
+import com.joaovictor.libraryapi.service.impl.IsbnBloomFilter;
 import com.joaovictor.libraryapi.exception.BusinessException;
 import org.assertj.core.api.Assert;
 import org.assertj.core.api.Assertions;
@@ -13,15 +15,21 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
@@ -29,12 +37,18 @@ public class BookServiceTest {
 
     BookService bookService;
 
+    IsbnBloomFilter isbnFilter;
+
+    BookSearchIndex searchIndex;
+
     @MockBean
     BookRepository bookRepository;
 
     @BeforeEach
     public void setUp() {
-        this.bookService = new BookServiceImpl( bookRepository );
+        this.isbnFilter = new IsbnBloomFilter( bookRepository, true, 1000, 0.01 );
+        this.searchIndex = new BookSearchIndex( bookRepository, true );
+        this.bookService = new BookServiceImpl( bookRepository, isbnFilter, searchIndex );
     }
 
     @Test
@@ -82,6 +96,66 @@ public class BookServiceTest {
         Mockito.verify(this.bookRepository, Mockito.never()).save(book);
     }
 
+    @Test
+    @DisplayName("Deve lançar erro de negócio quando um save concorrente gravar o mesmo isbn antes.")
+    public void saveBookWithConcurrentDuplicatedISBNTest() {
+        Book book = createNewBook();
+        Mockito.when(bookRepository.existsByIsbn(book.getIsbn())).thenReturn(false, true);
+        Mockito.when(bookRepository.save(book)).thenThrow(new DataIntegrityViolationException("ux_book_isbn"));
+
+        Throwable exception = Assertions.catchThrowable(() -> this.bookService.save(book));
+
+        Assertions.assertThat(exception)
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Isbn já cadastrado.");
+    }
+
+    @Test
+    @DisplayName("Não deve consultar o isbn no banco quando o filtro garantir que ele não existe.")
+    public void saveBookWithoutIsbnQueryTest() {
+        Book book = createNewBook();
+        Mockito.when(bookRepository.streamAllIsbns()).thenReturn(Stream.of("456", "789"));
+        Mockito.when(bookRepository.save(book)).thenReturn(book);
+        this.isbnFilter.rebuild();
+
+        this.bookService.save(book);
+
+        Mockito.verify(this.bookRepository, Mockito.never()).existsByIsbn(Mockito.anyString());
+        Mockito.verify(this.bookRepository, Mockito.times(1)).save(book);
+    }
+
+    @Test
+    @DisplayName("Deve consultar o isbn no banco quando o filtro indicar que ele pode existir.")
+    public void saveBookWithKnownIsbnTest() {
+        Book book = createNewBook();
+        Mockito.when(bookRepository.streamAllIsbns()).thenReturn(Stream.of("123"));
+        Mockito.when(this.bookRepository.existsByIsbn("123")).thenReturn(true);
+        this.isbnFilter.rebuild();
+
+        Throwable exception = Assertions.catchThrowable(() -> this.bookService.save(book));
+
+        Assertions.assertThat(exception).isInstanceOf(BusinessException.class);
+        Mockito.verify(this.bookRepository, Mockito.times(1)).existsByIsbn("123");
+        Mockito.verify(this.bookRepository, Mockito.never()).save(book);
+    }
+
+    @Test
+    @DisplayName("Deve salvar em lote somente os livros com isbn ainda não cadastrado.")
+    public void saveAllBooksTest() {
+        Book newBook = createNewBook();
+        Book existingBook = Book.builder().isbn("456").title("Outro").author("Outro").build();
+        Book repeatedBook = createNewBook();
+
+        Mockito.when(bookRepository.findExistingIsbns(Mockito.anyCollection())).thenReturn(Set.of("456"));
+        Mockito.when(bookRepository.saveAll(Mockito.anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<Book> savedBooks = this.bookService.saveAll(List.of(newBook, existingBook, repeatedBook));
+
+        Assertions.assertThat(savedBooks).hasSize(1);
+        Assertions.assertThat(savedBooks.get(0)).isSameAs(newBook);
+        Mockito.verify(bookRepository, Mockito.times(1)).findExistingIsbns(Mockito.anyCollection());
+    }
+
     @Test
     @DisplayName("Deve obter um livro por Id.")
     public void getByIdTest() {
@@ -192,6 +266,123 @@ public class BookServiceTest {
         Mockito.verify(bookRepository, Mockito.times(1)).findByIsbn(isbn);
     }
 
+    @Test
+    @DisplayName("Deve buscar livros por prefixo de título e autor no índice, em ordem de relevância.")
+    public void findBookBySearchIndexTest() {
+        Book prefix = Book.builder().id(1L).isbn("1").author("Fulano").title("Aventureiros do mar").build();
+        Book exact = Book.builder().id(2L).isbn("2").author("Fulano de Tal").title("As Aventuras").build();
+        Book other = Book.builder().id(3L).isbn("3").author("Ciclano").title("Aventuras no espaço").build();
+        Mockito.when(bookRepository.streamAllRows()).thenReturn(Stream.of(prefix, exact, other).map(BookServiceTest::row));
+        Mockito.when(bookRepository.findAllById(Mockito.anyIterable())).thenReturn(List.of(prefix, exact));
+        this.searchIndex.rebuild();
+
+        Page<Book> result = this.bookService.find(Book.builder().title("aventuras").author("fulano").build(), PageRequest.of(0, 10));
+        Page<Book> byPrefix = this.bookService.find(Book.builder().title("AVENT").author("ful").build(), PageRequest.of(0, 10));
+
+        Assertions.assertThat(result.getContent()).containsExactly(exact);
+        Assertions.assertThat(result.getTotalElements()).isEqualTo(1);
+        Assertions.assertThat(byPrefix.getContent()).containsExactly(prefix, exact);
+        Mockito.verify(bookRepository, Mockito.never()).findAll(Mockito.any(Example.class), Mockito.any(PageRequest.class));
+    }
+
+    @Test
+    @DisplayName("Deve casar trechos de termos como o CONTAINING, depois dos termos completos e dos prefixos.")
+    public void findBookBySearchIndexInfixTest() {
+        Book infix = Book.builder().id(1L).isbn("1").author("Fulano").title("Aventuras").build();
+        Book exact = Book.builder().id(2L).isbn("2").author("Fulano").title("Ventura no mar").build();
+        Book prefix = Book.builder().id(3L).isbn("3").author("Fulano").title("Venturas").build();
+        Book other = Book.builder().id(4L).isbn("4").author("Fulano").title("Outro livro").build();
+        List<Book> books = List.of(infix, exact, prefix, other);
+        Mockito.when(bookRepository.streamAllRows()).thenReturn(books.stream().map(BookServiceTest::row));
+        Mockito.when(bookRepository.findAllById(Mockito.anyIterable())).thenAnswer(invocation -> {
+            List<Long> ids = new ArrayList<>();
+            invocation.<Iterable<Long>>getArgument(0).forEach(ids::add);
+            return books.stream().filter(book -> ids.contains(book.getId())).collect(Collectors.toList());
+        });
+        this.searchIndex.rebuild();
+
+        Page<Book> result = this.bookService.find(Book.builder().title("ventura").build(), PageRequest.of(0, 10));
+        Page<Book> second = this.bookService.find(Book.builder().title("ventura").build(), PageRequest.of(1, 1));
+        Page<Book> shortTerm = this.bookService.find(Book.builder().title("ro").build(), PageRequest.of(0, 10));
+
+        Assertions.assertThat(result.getContent()).containsExactly(exact, prefix, infix);
+        Assertions.assertThat(result.getTotalElements()).isEqualTo(3);
+        Assertions.assertThat(second.getContent()).containsExactly(prefix);
+        Assertions.assertThat(second.getTotalElements()).isEqualTo(3);
+        Assertions.assertThat(shortTerm.getContent()).containsExactly(other);
+    }
+
+    @Test
+    @DisplayName("Deve refazer a página sem os ids que não existem mais no banco, descontando-os do total.")
+    public void findBookBySearchIndexWithDeletedRowsTest() {
+        Book first = Book.builder().id(1L).isbn("1").author("Fulano").title("As aventuras").build();
+        Book deleted = Book.builder().id(2L).isbn("2").author("Fulano").title("As aventuras").build();
+        Book third = Book.builder().id(3L).isbn("3").author("Fulano").title("As aventuras").build();
+        Mockito.when(bookRepository.streamAllRows()).thenReturn(Stream.of(first, deleted, third).map(BookServiceTest::row));
+        Mockito.when(bookRepository.findAllById(Mockito.anyIterable())).thenAnswer(invocation -> {
+            List<Long> ids = new ArrayList<>();
+            invocation.<Iterable<Long>>getArgument(0).forEach(ids::add);
+            return Stream.of(first, third).filter(book -> ids.contains(book.getId())).collect(Collectors.toList());
+        });
+        this.searchIndex.rebuild();
+
+        Page<Book> result = this.bookService.find(Book.builder().title("aventuras").build(), PageRequest.of(0, 2));
+
+        Assertions.assertThat(result.getContent()).containsExactly(first, third);
+        Assertions.assertThat(result.getTotalElements()).isEqualTo(2);
+        Mockito.verify(bookRepository, Mockito.never()).findAll(Mockito.any(Example.class), Mockito.any(PageRequest.class));
+    }
+
+    @Test
+    @DisplayName("Deve paginar a busca no índice por cursor, em ordem de id, a partir do último id informado.")
+    public void findAfterBySearchIndexTest() {
+        Book first = Book.builder().id(1L).isbn("1").author("Fulano").title("Aventura no mar").build();
+        Book second = Book.builder().id(2L).isbn("2").author("Fulano").title("Aventuras e aventureiros").build();
+        Book other = Book.builder().id(3L).isbn("3").author("Ciclano").title("Aventuras no espaço").build();
+        Book third = Book.builder().id(4L).isbn("4").author("Fulano").title("Outras aventuras").build();
+        Mockito.when(bookRepository.streamAllRows()).thenReturn(Stream.of(first, second, other, third).map(BookServiceTest::row));
+        Mockito.when(bookRepository.findAllById(Mockito.anyIterable())).thenAnswer(invocation -> {
+            List<Long> ids = new ArrayList<>();
+            invocation.<Iterable<Long>>getArgument(0).forEach(ids::add);
+            return Stream.of(first, second, other, third).filter(book -> ids.contains(book.getId())).collect(Collectors.toList());
+        });
+        this.searchIndex.rebuild();
+        Book filter = Book.builder().title("aventur").author("fulano").build();
+
+        Slice<Book> page = this.bookService.findAfter(filter, null, 2);
+        Slice<Book> next = this.bookService.findAfter(filter, 2L, 2);
+
+        Assertions.assertThat(page.getContent()).containsExactly(first, second);
+        Assertions.assertThat(page.hasNext()).isTrue();
+        Assertions.assertThat(next.getContent()).containsExactly(third);
+        Assertions.assertThat(next.hasNext()).isFalse();
+        Mockito.verify(bookRepository, Mockito.never()).findAfter(Mockito.any(), Mockito.any(), Mockito.anyInt());
+    }
+
+    @Test
+    @DisplayName("Deve manter o índice de busca atualizado ao salvar, atualizar e deletar livros.")
+    public void searchIndexMaintenanceTest() {
+        Book book = Book.builder().id(1L).isbn("123").author("Fulano").title("As aventuras").build();
+        Mockito.when(bookRepository.streamAllRows()).thenReturn(Stream.empty());
+        Mockito.when(bookRepository.save(Mockito.any(Book.class))).then(invocation -> invocation.getArgument(0));
+        Mockito.when(bookRepository.findAllById(Mockito.anyIterable())).thenReturn(List.of(book));
+        this.searchIndex.rebuild();
+
+        this.bookService.save(book);
+        Slice<Book> saved = this.bookService.findAfter(Book.builder().title("aventuras").build(), null, 10);
+
+        this.bookService.update(Book.builder().id(1L).isbn("123").author("Fulano").title("O retorno").build());
+        Page<Book> afterUpdate = this.bookService.find(Book.builder().title("aventuras").build(), PageRequest.of(0, 10));
+
+        this.bookService.delete(book);
+        Page<Book> afterDelete = this.bookService.find(Book.builder().title("retorno").build(), PageRequest.of(0, 10));
+
+        Assertions.assertThat(saved.getContent()).containsExactly(book);
+        Assertions.assertThat(saved.hasNext()).isFalse();
+        Assertions.assertThat(afterUpdate.getContent()).isEmpty();
+        Assertions.assertThat(afterDelete.getContent()).isEmpty();
+    }
+
     private Book createNewBook() {
         return Book.builder()
                 .isbn("123")
@@ -199,4 +390,28 @@ public class BookServiceTest {
                 .title("As aventuras")
                 .build();
     }
+
+    private static BookRepository.BookRow row(Book book) {
+        return new BookRepository.BookRow() {
+            @Override
+            public Long getId() {
+                return book.getId();
+            }
+
+            @Override
+            public String getTitle() {
+                return book.getTitle();
+            }
+
+            @Override
+            public String getAuthor() {
+                return book.getAuthor();
+            }
+
+            @Override
+            public String getIsbn() {
+                return book.getIsbn();
+            }
+        };
+    }
 }
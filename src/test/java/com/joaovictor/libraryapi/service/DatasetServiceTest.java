@@ -0,0 +1,78 @@
+package com.joaovictor.libraryapi.service;
+
+import com.joaovictor.libraryapi.model.entity.Book;
+import com.joaovictor.libraryapi.model.repository.BookRepository;
+import com.joaovictor.libraryapi.model.repository.LoanRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class DatasetServiceTest {
+
+    @Autowired
+    DatasetService datasetService;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    public void tearDown() {
+        loanRepository.deleteAllInBatch();
+        bookRepository.deleteAllInBatch();
+    }
+
+    @Test
+    @DisplayName("Deve gerar livros e empréstimos com popularidade concentrada e um empréstimo aberto por livro.")
+    public void generateTest() {
+        DatasetReport report = datasetService.generate(2000, 10000);
+
+        Assertions.assertThat(report.getBooks()).isEqualTo(2000);
+        Assertions.assertThat(report.getLoans()).isEqualTo(10000);
+        Assertions.assertThat(bookRepository.count()).isEqualTo(2000);
+        Assertions.assertThat(loanRepository.count()).isEqualTo(10000);
+        Assertions.assertThat(loanRepository.countActiveLoans()).isEqualTo(report.getOpenLoans());
+        Assertions.assertThat(loanRepository.findOverdueLoans(LocalDate.now()))
+                .hasSize((int) report.getOverdueLoans());
+        Assertions.assertThat(report.getOverdueLoans()).isPositive().isLessThan(report.getOpenLoans());
+
+        Integer maxOpenPerBook = jdbcTemplate.queryForObject(
+                "select max(c) from (select count(*) c from loan where returned = false group by id_book)", Integer.class);
+        Assertions.assertThat(maxOpenPerBook).isEqualTo(1);
+
+        /* Zipf: o livro mais emprestado sozinho passa de 10% dos empréstimos */
+        Integer topBookLoans = jdbcTemplate.queryForObject(
+                "select max(c) from (select count(*) c from loan group by id_book)", Integer.class);
+        Assertions.assertThat(topBookLoans).isGreaterThan(1000);
+
+        Integer customers = jdbcTemplate.queryForObject("select count(distinct customer_email) from loan", Integer.class);
+        Assertions.assertThat(customers).isLessThanOrEqualTo((int) report.getCustomers()).isGreaterThan(1);
+    }
+
+    @Test
+    @DisplayName("Deve reservar os ids dos livros na sequence sem colidir com os gerados pelo Hibernate.")
+    public void generateKeepsBookSequenceTest() {
+        Book before = bookRepository.save(Book.builder().title("Antes").author("Fulano").isbn("dataset-1").build());
+
+        datasetService.generate(120, 0);
+
+        Book after = bookRepository.save(Book.builder().title("Depois").author("Fulano").isbn("dataset-2").build());
+        Assertions.assertThat(bookRepository.count()).isEqualTo(122);
+        Assertions.assertThat(after.getId()).isNotEqualTo(before.getId());
+        Assertions.assertThat(bookRepository.findById(after.getId())).get().extracting(Book::getIsbn).isEqualTo("dataset-2");
+    }
+}
@@ -0,0 +1,150 @@
+package com.joaovictor.libraryapi.service;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.joaovictor.libraryapi.service.impl.EmailServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class EmailServiceTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setUp() {
+        this.meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("Deve enviar os e-mails em blocos de destinatários reutilizando a conexão SMTP.")
+    public void sendEmailsTest() throws Exception {
+        EmailServiceImpl emailService = new EmailServiceImpl(mailSender(ServerSetupTest.SMTP.getPort()), meterRegistry,
+                "mail@library-api.com", 2, 10, 2, 20, 3, 10, false);
+        List<String> mails = Arrays.asList("a@email.com", "b@email.com", "c@email.com", "d@email.com", "e@email.com");
+
+        emailService.sendEmails(mails, "Livro atrasado");
+        emailService.shutdown();
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        Assertions.assertThat(received).hasSize(5);
+        Assertions.assertThat(received[0].getSubject()).isEqualTo("Livro com empréstimo atrasado");
+        Assertions.assertThat(meterRegistry.get("library.mail.send").timer().count()).isEqualTo(3);
+        Assertions.assertThat(meterRegistry.get("library.mail.failures").counter().count()).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve tentar novamente e contabilizar a falha quando o servidor SMTP estiver indisponível.")
+    public void sendEmailsRetryTest() throws Exception {
+        EmailServiceImpl emailService = new EmailServiceImpl(mailSender(ServerSetupTest.SMTP.getPort() + 1), meterRegistry,
+                "mail@library-api.com", 1, 10, 50, 20, 3, 1, false);
+
+        emailService.sendEmails(Arrays.asList("a@email.com"), "Livro atrasado");
+        emailService.shutdown();
+
+        Assertions.assertThat(greenMail.getReceivedMessages()).isEmpty();
+        Assertions.assertThat(meterRegistry.get("library.mail.retries").counter().count()).isEqualTo(2);
+        Assertions.assertThat(meterRegistry.get("library.mail.failures").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve enviar os e-mails com os workers em threads virtuais.")
+    public void sendEmailsOnVirtualThreadsTest() throws Exception {
+        EmailServiceImpl emailService = new EmailServiceImpl(mailSender(ServerSetupTest.SMTP.getPort()), meterRegistry,
+                "mail@library-api.com", 2, 10, 2, 20, 3, 10, true);
+
+        emailService.sendEmails(Arrays.asList("a@email.com", "b@email.com", "c@email.com"), "Livro atrasado");
+        emailService.shutdown();
+
+        Assertions.assertThat(greenMail.getReceivedMessages()).hasSize(3);
+        Assertions.assertThat(meterRegistry.get("library.mail.failures").counter().count()).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve enviar mensagens individuais em lotes pela conexão SMTP de cada worker.")
+    public void sendMessagesTest() throws Exception {
+        EmailServiceImpl emailService = new EmailServiceImpl(mailSender(ServerSetupTest.SMTP.getPort()), meterRegistry,
+                "mail@library-api.com", 2, 10, 50, 2, 3, 10, false);
+        List<SimpleMailMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setTo("cliente" + i + "@email.com");
+            message.setSubject("Resumo " + i);
+            message.setText("Livro " + i);
+            messages.add(message);
+        }
+
+        emailService.sendMessages(messages);
+        emailService.shutdown();
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        Assertions.assertThat(received).hasSize(5);
+        Assertions.assertThat(received).extracting(MimeMessage::getSubject)
+                .containsExactlyInAnyOrder("Resumo 0", "Resumo 1", "Resumo 2", "Resumo 3", "Resumo 4");
+        Assertions.assertThat(received[0].getFrom()[0].toString()).isEqualTo("mail@library-api.com");
+        Assertions.assertThat(meterRegistry.get("library.mail.send").timer().count()).isEqualTo(5);
+        Assertions.assertThat(messages).extracting(SimpleMailMessage::getFrom).containsOnlyNulls();
+    }
+
+    @Test
+    @DisplayName("Deve enviar na thread de quem chamou, e contabilizar, as mensagens recebidas depois do shutdown.")
+    public void sendMessagesAfterShutdownTest() throws Exception {
+        EmailServiceImpl emailService = new EmailServiceImpl(mailSender(ServerSetupTest.SMTP.getPort()), meterRegistry,
+                "mail@library-api.com", 1, 10, 50, 20, 3, 10, false);
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo("cliente@email.com");
+        message.setText("Livro");
+        emailService.shutdown();
+
+        emailService.sendMessages(List.of(message));
+
+        Assertions.assertThat(greenMail.getReceivedMessages()).hasSize(1);
+        Assertions.assertThat(meterRegistry.get("library.mail.after-shutdown").counter().count()).isEqualTo(1);
+        Assertions.assertThat(meterRegistry.get("library.mail.connections").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve fechar a conexão SMTP de quem chamou quando a fila cheia o fizer enviar.")
+    public void sendMessagesOnCallerThreadTest() throws Exception {
+        EmailServiceImpl emailService = new EmailServiceImpl(mailSender(ServerSetupTest.SMTP.getPort()), meterRegistry,
+                "mail@library-api.com", 1, 1, 50, 1, 3, 10, false);
+        List<SimpleMailMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setTo("cliente" + i + "@email.com");
+            message.setText("Livro " + i);
+            messages.add(message);
+        }
+
+        emailService.sendMessages(messages);
+        /* só a conexão do único worker pode continuar aberta */
+        double connections = meterRegistry.get("library.mail.connections").gauge().value();
+        emailService.shutdown();
+
+        Assertions.assertThat(connections).isLessThanOrEqualTo(1);
+        Assertions.assertThat(greenMail.getReceivedMessages()).hasSize(20);
+        Assertions.assertThat(meterRegistry.get("library.mail.connections").gauge().value()).isZero();
+    }
+
+    private JavaMailSenderImpl mailSender(int port) {
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost("localhost");
+        sender.setPort(port);
+        sender.setDefaultEncoding("UTF-8");
+        return sender;
+    }
+}
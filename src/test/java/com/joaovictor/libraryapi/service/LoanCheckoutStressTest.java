@@ -0,0 +1,127 @@
+package com.joaovictor.libraryapi.service;
+
+import com.joaovictor.libraryapi.exception.BusinessException;
+import com.joaovictor.libraryapi.model.entity.Book;
+import com.joaovictor.libraryapi.model.entity.Loan;
+import com.joaovictor.libraryapi.model.repository.BookRepository;
+import com.joaovictor.libraryapi.model.repository.LoanRepository;
+import com.joaovictor.libraryapi.service.impl.ActiveLoanIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Várias threads tentando emprestar os mesmos livros ao mesmo tempo: mede a vazão de empréstimos
+ * e garante que nenhum livro fique com mais de um empréstimo em aberto.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Slf4j
+public class LoanCheckoutStressTest {
+
+    static final int BOOKS = 32;
+    static final int ATTEMPTS_PER_THREAD = 200;
+
+    @Autowired
+    LoanService loanService;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    ActiveLoanIndex activeLoans;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    List<Book> books;
+
+    @BeforeEach
+    public void setUp() {
+        this.books = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i++) {
+            books.add(bookRepository.save(Book.builder().title("Livro " + i).author("Fulano").isbn("stress-" + i).build()));
+        }
+        activeLoans.rebuild();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        loanRepository.deleteAll();
+        bookRepository.deleteAll();
+        activeLoans.rebuild();
+    }
+
+    @ParameterizedTest(name = "{0} threads")
+    @ValueSource(ints = {1, 2, 4, 8, 16, 32, 64})
+    @DisplayName("Não deve emprestar o mesmo livro duas vezes com empréstimos concorrentes.")
+    public void concurrentCheckoutTest(int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger lent = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    Book book = books.get(random.nextInt(BOOKS));
+                    try {
+                        Loan loan = loanService.save(Loan.builder().book(book).customer("Cliente")
+                                .loanDate(LocalDate.now()).build());
+                        lent.incrementAndGet();
+                        /* devolve parte dos livros para que voltem a disputa */
+                        if (random.nextInt(4) == 0) {
+                            loan.setReturned(true);
+                            loanService.update(loan);
+                        }
+                    } catch (BusinessException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - begin;
+        executor.shutdown();
+
+        int attempts = threads * ATTEMPTS_PER_THREAD;
+        log.info("CHECKOUT STRESS: {} THREADS, {} ATTEMPTS, {} LOANS IN {} MS ({} ATTEMPTS/S)",
+                threads, attempts, lent.get(), TimeUnit.NANOSECONDS.toMillis(elapsed), Math.round(attempts / (elapsed / 1e9)));
+
+        Integer openPerBook = jdbcTemplate.queryForObject("select coalesce(max(c), 0) from (select count(*) c from loan "
+                + "where returned is null or returned = false group by id_book) t", Integer.class);
+        Assertions.assertThat(openPerBook).isLessThanOrEqualTo(1);
+        Assertions.assertThat(lent.get() + rejected.get()).isEqualTo(attempts);
+        Assertions.assertThat(lent.get()).isGreaterThanOrEqualTo(Math.min(BOOKS, attempts) / 2);
+    }
+}
@@ -6,7 +6,9 @@ import com.joaovictor.libraryapi.exception.BusinessException;
 import com.joaovictor.libraryapi.model.entity.Book;
 import com.joaovictor.libraryapi.model.entity.Loan;
 import com.joaovictor.libraryapi.model.repository.LoanRepository;
+import com.joaovictor.libraryapi.service.impl.ActiveLoanIndex;
 import com.joaovictor.libraryapi.service.impl.LoanServiceImpl;
+import com.joaovictor.libraryapi.service.impl.OverdueLoanTracker;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -22,8 +24,11 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
@@ -31,11 +36,15 @@ public class LoanServiceTest {
 
     @MockBean
     private LoanRepository repository;
+    private ActiveLoanIndex activeLoans;
+    private OverdueLoanTracker overdueLoans;
     private LoanService loanService;
 
     @BeforeEach
     public void setUp() {
-        this.loanService = new LoanServiceImpl(repository);
+        this.activeLoans = new ActiveLoanIndex(repository, true);
+        this.overdueLoans = new OverdueLoanTracker(repository, true);
+        this.loanService = new LoanServiceImpl(repository, activeLoans, overdueLoans, 16, 3, 2);
     }
 
     @Test
@@ -55,6 +64,20 @@ public class LoanServiceTest {
         Assertions.assertThat(loan.getBook().getId()).isEqualTo(book.getId());
         Assertions.assertThat(loan.getCustomer()).isEqualTo(loanSaved.getCustomer());
         Assertions.assertThat(loan.getLoanDate()).isEqualTo(loanSaved.getLoanDate());
+        Assertions.assertThat(loanSaving.getDueDate()).isEqualTo(LocalDate.now().plusDays(3));
+    }
+
+    @Test
+    @DisplayName("Deve lançar um erro de negócio ao salvar um empréstimo com prazo menor que um dia.")
+    public void invalidDueDateTest() {
+        Loan loanSaving = createLoan();
+        loanSaving.setDueDate(LocalDate.now());
+
+        Throwable exception = Assertions.catchThrowable(() -> loanService.save(loanSaving));
+
+        Assertions.assertThat(exception).isInstanceOf(BusinessException.class)
+                .hasMessage("Prazo do empréstimo deve ser de ao menos um dia.");
+        Mockito.verify(repository, Mockito.never()).save(loanSaving);
     }
 
     @Test
@@ -136,6 +159,269 @@ public class LoanServiceTest {
         Assertions.assertThat(result.getPageable().getPageSize()).isEqualTo(10);
     }
 
+    @Test
+    @DisplayName("Deve agrupar os atrasados em um resumo por cliente e entregar os resumos em blocos de tamanho fixo.")
+    public void forEachOverdueDigestChunkTest() {
+        LocalDate dueDate = LocalDate.now().minusDays(1);
+        Mockito.when(repository.streamOverdueLoanViews(Mockito.any(LocalDate.class))).thenReturn(Stream.of(
+                view("a@email.com", "Livro 1", dueDate), view("A@Email.com ", "Livro 2", dueDate),
+                view("b@email.com", "Livro 3", dueDate), view("c@email.com", "Livro 4", dueDate)));
+
+        List<List<OverdueDigest>> chunks = new ArrayList<>();
+        loanService.forEachOverdueDigestChunk(2, chunks::add);
+
+        Assertions.assertThat(chunks).hasSize(2);
+        Assertions.assertThat(chunks.get(0)).extracting(OverdueDigest::getCustomerEmail).containsExactly("a@email.com", "b@email.com");
+        Assertions.assertThat(chunks.get(0).get(0).getLoans()).extracting(LoanRepository.OverdueLoanView::getTitle)
+                .containsExactly("Livro 1", "Livro 2");
+        Assertions.assertThat(chunks.get(1)).extracting(OverdueDigest::getCustomerEmail).containsExactly("c@email.com");
+    }
+
+    @Test
+    @DisplayName("Deve salvar sem consultar o banco quando o índice indicar que o livro não está emprestado.")
+    public void saveLoanWithIndexMissTest() {
+        Mockito.when(repository.streamActiveLoanBookIds()).thenReturn(Stream.of(2L));
+        activeLoans.rebuild();
+        Loan loan = createLoan();
+        Mockito.when(repository.save(loan)).thenReturn(loan);
+
+        loanService.save(loan);
+
+        Mockito.verify(repository, Mockito.never()).existsByBookAndNotReturned(Mockito.any(Book.class));
+        Assertions.assertThat(loanService.isAvailable(1L)).contains(false);
+    }
+
+    @Test
+    @DisplayName("Deve confirmar no banco quando o índice indicar que o livro está emprestado.")
+    public void saveLoanWithStaleIndexHitTest() {
+        Mockito.when(repository.streamActiveLoanBookIds()).thenReturn(Stream.of(1L));
+        activeLoans.rebuild();
+        Loan loan = createLoan();
+        Mockito.when(repository.existsByBookAndNotReturned(loan.getBook())).thenReturn(false);
+        Mockito.when(repository.save(loan)).thenReturn(loan);
+
+        loanService.save(loan);
+
+        Mockito.verify(repository).existsByBookAndNotReturned(loan.getBook());
+        Mockito.verify(repository).save(loan);
+    }
+
+    @Test
+    @DisplayName("Deve liberar o livro no índice ao devolver o empréstimo.")
+    public void returnLoanUpdatesIndexTest() {
+        Mockito.when(repository.streamActiveLoanBookIds()).thenReturn(Stream.of(1L, 70000L));
+        activeLoans.rebuild();
+        Loan loan = createLoan();
+        loan.setReturned(true);
+        Mockito.when(repository.save(loan)).thenReturn(loan);
+
+        Assertions.assertThat(loanService.isAvailable(1L)).contains(false);
+        loanService.update(loan);
+
+        Assertions.assertThat(loanService.isAvailable(1L)).contains(true);
+        Assertions.assertThat(loanService.isAvailable(70000L)).contains(false);
+    }
+
+    @Test
+    @DisplayName("Deve devolver um empréstimo por update direto, liberando o livro no índice.")
+    public void returnLoanTest() {
+        Mockito.when(repository.streamActiveLoanBookIds()).thenReturn(Stream.of(1L));
+        activeLoans.rebuild();
+        Mockito.when(repository.findRefById(10L)).thenReturn(Optional.of(ref(10L, 1L, LocalDate.now())));
+        Mockito.when(repository.updateReturned(10L, true)).thenReturn(1);
+
+        Assertions.assertThat(loanService.returnLoan(10L, true)).isTrue();
+
+        Assertions.assertThat(loanService.isAvailable(1L)).contains(true);
+        Mockito.verify(repository, Mockito.never()).findById(Mockito.anyLong());
+        Mockito.verify(repository, Mockito.never()).save(Mockito.any(Loan.class));
+    }
+
+    @Test
+    @DisplayName("Não deve devolver um empréstimo inexistente nem mexer no índice quando nada mudar.")
+    public void returnLoanNotFoundTest() {
+        Mockito.when(repository.streamActiveLoanBookIds()).thenReturn(Stream.of(1L));
+        activeLoans.rebuild();
+        Mockito.when(repository.findRefById(10L)).thenReturn(Optional.of(ref(10L, 1L, LocalDate.now())));
+        Mockito.when(repository.updateReturned(10L, true)).thenReturn(0);
+
+        Assertions.assertThat(loanService.returnLoan(99L, true)).isFalse();
+        Assertions.assertThat(loanService.returnLoan(10L, true)).isTrue();
+
+        Assertions.assertThat(loanService.isAvailable(1L)).contains(false);
+        Mockito.verify(repository, Mockito.never()).updateReturned(Mockito.eq(99L), Mockito.anyBoolean());
+    }
+
+    @Test
+    @DisplayName("Deve devolver em massa por blocos de ids e de isbns, liberando os livros no índice.")
+    public void returnLoansTest() {
+        Mockito.when(repository.streamActiveLoanBookIds()).thenReturn(Stream.of(1L, 2L, 3L, 4L));
+        activeLoans.rebuild();
+        LocalDate dueDate = LocalDate.now();
+        Mockito.when(repository.findOpenLoanRefsByIds(List.of(10L, 20L))).thenReturn(List.of(ref(10L, 1L, dueDate), ref(20L, 2L, dueDate)));
+        Mockito.when(repository.findOpenLoanRefsByIds(List.of(30L))).thenReturn(List.of(ref(30L, 3L, dueDate)));
+        Mockito.when(repository.returnByIds(List.of(10L, 20L))).thenReturn(2);
+        Mockito.when(repository.returnByIds(List.of(30L))).thenReturn(1);
+        Mockito.when(repository.findOpenLoanRefsByIsbns(List.of("123"))).thenReturn(List.of(ref(40L, 4L, dueDate)));
+        Mockito.when(repository.returnByIds(List.of(40L))).thenReturn(1);
+
+        /* blocos de 2 (ver setUp); ids repetidos contam uma vez */
+        long returned = loanService.returnLoans(List.of(10L, 20L, 30L, 10L), List.of("123"));
+
+        Assertions.assertThat(returned).isEqualTo(4);
+        Assertions.assertThat(List.of(1L, 2L, 3L, 4L)).allMatch(bookId -> loanService.isAvailable(bookId).orElse(false));
+        Mockito.verify(repository, Mockito.never()).save(Mockito.any(Loan.class));
+    }
+
+    @Test
+    @DisplayName("Não deve liberar no índice um livro emprestado de novo antes de a devolução em massa obter o lock.")
+    public void returnLoansRelentBookTest() {
+        Mockito.when(repository.streamActiveLoanBookIds()).thenReturn(Stream.of(1L, 2L));
+        activeLoans.rebuild();
+        /* na releitura sob o lock, o empréstimo do livro 2 já não está em aberto */
+        Mockito.when(repository.findOpenLoanRefsByIds(List.of(10L, 20L)))
+                .thenReturn(List.of(ref(10L, 1L, LocalDate.now()), ref(20L, 2L, LocalDate.now())))
+                .thenReturn(List.of(ref(10L, 1L, LocalDate.now())));
+        Mockito.when(repository.returnByIds(List.of(10L))).thenReturn(1);
+
+        Assertions.assertThat(loanService.returnLoans(List.of(10L, 20L), null)).isEqualTo(1);
+
+        Assertions.assertThat(loanService.isAvailable(1L)).contains(true);
+        Assertions.assertThat(loanService.isAvailable(2L)).contains(false);
+    }
+
+    @Test
+    @DisplayName("Deve obter do tracker os atrasados agrupados por cliente, sem os que ainda estão no prazo ou sem e-mail.")
+    public void overdueByCustomerFromTrackerTest() {
+        LocalDate today = LocalDate.now();
+        Mockito.when(repository.streamOpenLoanRefs()).thenReturn(Stream.of(
+                ref(10L, 1L, today.minusDays(1), "b@email.com"), ref(20L, 2L, today.minusDays(5), " A@Email.com"),
+                ref(30L, 3L, today, "a@email.com"), ref(40L, 4L, today.minusDays(3), "b@email.com"),
+                ref(50L, 5L, today.minusDays(2), null), ref(60L, 6L, null, "a@email.com")));
+        overdueLoans.rebuild();
+
+        Assertions.assertThat(overdueLoans.overdueByCustomer(today))
+                .containsExactly(Map.entry("a@email.com", List.of(20L)), Map.entry("b@email.com", List.of(40L, 10L)));
+        Assertions.assertThat(overdueLoans.overdueByCustomer(today.plusDays(1))).containsKey("a@email.com")
+                .extractingByKey("a@email.com").isEqualTo(List.of(20L, 30L));
+        Assertions.assertThat(overdueLoans.openLoans()).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("Deve manter o tracker a cada empréstimo e devolução, inclusive durante a carga.")
+    public void trackerFollowsLoansTest() {
+        LocalDate today = LocalDate.now();
+        /* o empréstimo 10 é devolvido enquanto a carga ainda o lê como aberto */
+        Mockito.when(repository.findRefById(10L)).thenReturn(Optional.of(ref(10L, 1L, today.minusDays(1))));
+        Mockito.when(repository.updateReturned(10L, true)).thenReturn(1);
+        Mockito.when(repository.streamOpenLoanRefs()).thenAnswer(invocation -> {
+            loanService.returnLoan(10L, true);
+            return Stream.of(ref(10L, 1L, today.minusDays(1)));
+        });
+        overdueLoans.rebuild();
+        Assertions.assertThat(overdueLoans.overdueByCustomer(today)).isEmpty();
+        Assertions.assertThat(overdueLoans.openLoans()).isZero();
+
+        Loan loan = createLoan();
+        loan.setLoanDate(today.minusDays(5));
+        Loan saved = createLoan();
+        saved.setId(20L);
+        saved.setDueDate(today.minusDays(1));
+        saved.setCustomerEmail("fulano@email.com");
+        Mockito.when(repository.save(loan)).thenReturn(saved);
+        loanService.save(loan);
+        Assertions.assertThat(overdueLoans.overdueByCustomer(today)).containsExactly(Map.entry("fulano@email.com", List.of(20L)));
+
+        saved.setReturned(true);
+        Mockito.when(repository.save(saved)).thenReturn(saved);
+        loanService.update(saved);
+        Assertions.assertThat(overdueLoans.overdueByCustomer(today)).isEmpty();
+        Assertions.assertThat(overdueLoans.openLoans()).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve montar os resumos lendo do banco só os atrasados do tracker, um bloco de clientes por vez.")
+    public void forEachOverdueDigestChunkWithTrackerTest() {
+        LocalDate today = LocalDate.now();
+        Mockito.when(repository.streamOpenLoanRefs()).thenReturn(Stream.of(
+                ref(10L, 1L, today.minusDays(2), "a@email.com"), ref(20L, 2L, today.minusDays(1), "b@email.com"),
+                ref(30L, 3L, today.minusDays(3), "b@email.com"), ref(40L, 4L, today, "c@email.com")));
+        overdueLoans.rebuild();
+        Mockito.when(repository.findOverdueLoanViewsByIds(List.of(10L), today)).thenReturn(List.of(
+                view("a@email.com", "Livro 1", today.minusDays(2))));
+        Mockito.when(repository.findOverdueLoanViewsByIds(List.of(30L, 20L), today)).thenReturn(List.of(
+                view("b@email.com", "Livro 3", today.minusDays(3)),
+                view("b@email.com", "Livro 2", today.minusDays(1))));
+
+        List<List<OverdueDigest>> chunks = new ArrayList<>();
+        loanService.forEachOverdueDigestChunk(1, chunks::add);
+
+        Assertions.assertThat(chunks).hasSize(2);
+        Assertions.assertThat(chunks.get(0)).extracting(OverdueDigest::getCustomerEmail).containsExactly("a@email.com");
+        Assertions.assertThat(chunks.get(1)).extracting(OverdueDigest::getCustomerEmail).containsExactly("b@email.com");
+        Assertions.assertThat(chunks.get(1).get(0).getLoans()).extracting(LoanRepository.OverdueLoanView::getTitle)
+                .containsExactly("Livro 3", "Livro 2");
+        Mockito.verify(repository, Mockito.never()).streamOverdueLoanViews(Mockito.any(LocalDate.class));
+    }
+
+    @Test
+    @DisplayName("Não deve responder a disponibilidade antes de o índice ser carregado.")
+    public void availabilityBeforeIndexLoadedTest() {
+        Assertions.assertThat(loanService.isAvailable(1L)).isEmpty();
+    }
+
+    private static LoanRepository.LoanRef ref(Long id, Long bookId, LocalDate dueDate) {
+        return ref(id, bookId, dueDate, "fulano@email.com");
+    }
+
+    private static LoanRepository.LoanRef ref(Long id, Long bookId, LocalDate dueDate, String customerEmail) {
+        return new LoanRepository.LoanRef() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getBookId() {
+                return bookId;
+            }
+
+            @Override
+            public LocalDate getDueDate() {
+                return dueDate;
+            }
+
+            @Override
+            public String getCustomerEmail() {
+                return customerEmail;
+            }
+        };
+    }
+
+    private static LoanRepository.OverdueLoanView view(String customerEmail, String title, LocalDate dueDate) {
+        return new LoanRepository.OverdueLoanView() {
+            @Override
+            public String getCustomer() {
+                return "Fulano";
+            }
+
+            @Override
+            public String getCustomerEmail() {
+                return customerEmail;
+            }
+
+            @Override
+            public String getTitle() {
+                return title;
+            }
+
+            @Override
+            public LocalDate getDueDate() {
+                return dueDate;
+            }
+        };
+    }
+
     public static Loan createLoan() {
         Book book = Book.builder().id(1L).build();
         return Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build();
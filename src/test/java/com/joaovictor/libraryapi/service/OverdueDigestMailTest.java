@@ -0,0 +1,128 @@
+package com.joaovictor.libraryapi.service;
+
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.joaovictor.libraryapi.model.entity.Book;
+import com.joaovictor.libraryapi.model.entity.Loan;
+import com.joaovictor.libraryapi.model.repository.BookRepository;
+import com.joaovictor.libraryapi.model.repository.LoanRepository;
+import com.joaovictor.libraryapi.service.impl.OverdueLoanTracker;
+import lombok.extern.slf4j.Slf4j;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*
+ * Job de atrasados de ponta a ponta contra um servidor SMTP local (GreenMail): um e-mail por cliente,
+ * com todos os livros atrasados dele, e a vazão de envio em e-mails por segundo.
+ */
+@SpringBootTest(properties = {
+        "spring.mail.host=localhost",
+        "spring.mail.port=3025",
+        "application.mail.dispatch.workers=4",
+        "application.mail.dispatch.backoff-millis=10"})
+@ActiveProfiles("test")
+@Slf4j
+public class OverdueDigestMailTest {
+
+    static final int CUSTOMERS = 200;
+    static final int LOANS_PER_CUSTOMER = 3;
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP)
+            .withConfiguration(GreenMailConfiguration.aConfig().withDisabledAuthentication());
+
+    @Autowired
+    ScheduleService scheduleService;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    OverdueLoanTracker overdueLoans;
+
+    @AfterEach
+    public void tearDown() {
+        loanRepository.deleteAllInBatch();
+        bookRepository.deleteAllInBatch();
+        overdueLoans.rebuild();
+    }
+
+    @Test
+    @DisplayName("Deve enviar um único resumo por cliente com todos os livros atrasados, medindo os envios por segundo.")
+    public void overdueDigestsTest() throws Exception {
+        LocalDate today = LocalDate.now();
+        List<Book> books = new ArrayList<>();
+        for (int customer = 0; customer < CUSTOMERS; customer++) {
+            for (int i = 0; i < LOANS_PER_CUSTOMER; i++) {
+                books.add(Book.builder().title("Livro " + customer + "-" + i).author("Fulano").isbn("d-" + customer + "-" + i).build());
+            }
+        }
+        books.add(Book.builder().title("No prazo").author("Fulano").isbn("d-no-prazo").build());
+        books = bookRepository.saveAll(books);
+
+        List<Loan> loans = new ArrayList<>();
+        for (int customer = 0; customer < CUSTOMERS; customer++) {
+            for (int i = 0; i < LOANS_PER_CUSTOMER; i++) {
+                /* o mesmo cliente com o e-mail grafado de outra forma continua recebendo um só resumo */
+                String email = i == 1 ? " Cliente" + customer + "@Email.com" : "cliente" + customer + "@email.com";
+                LocalDate dueDate = today.minusDays(1 + i);
+                loans.add(Loan.builder().book(books.get(customer * LOANS_PER_CUSTOMER + i)).customer("Cliente " + customer)
+                        .customerEmail(email).loanDate(dueDate.minusDays(3)).dueDate(dueDate).build());
+            }
+        }
+        loans.add(Loan.builder().book(books.get(books.size() - 1)).customer("Cliente 0").customerEmail("cliente0@email.com")
+                .loanDate(today).dueDate(today.plusDays(3)).build());
+        loanRepository.saveAll(loans);
+        overdueLoans.rebuild();
+
+        long begin = System.nanoTime();
+        scheduleService.senMailToLateLoans();
+        boolean delivered = greenMail.waitForIncomingEmail(30_000, CUSTOMERS);
+        long elapsed = System.nanoTime() - begin;
+        log.info("OVERDUE DIGESTS: {} CUSTOMERS, {} OVERDUE LOANS, {} E-MAILS IN {} MS ({} E-MAILS/S)",
+                CUSTOMERS, CUSTOMERS * LOANS_PER_CUSTOMER, greenMail.getReceivedMessages().length,
+                TimeUnit.NANOSECONDS.toMillis(elapsed), Math.round(greenMail.getReceivedMessages().length / (elapsed / 1e9)));
+
+        Assertions.assertThat(delivered).isTrue();
+        Assertions.assertThat(greenMail.waitForIncomingEmail(500, CUSTOMERS + 1)).isFalse();
+
+        Map<String, MimeMessage> byRecipient = Arrays.stream(greenMail.getReceivedMessages())
+                .collect(Collectors.toMap(OverdueDigestMailTest::recipient, Function.identity()));
+        Assertions.assertThat(byRecipient).hasSize(CUSTOMERS);
+
+        MimeMessage digest = byRecipient.get("cliente0@email.com");
+        String text = digest.getContent().toString();
+        Assertions.assertThat(digest.getSubject()).isEqualTo("Livros com empréstimo atrasado");
+        Assertions.assertThat(text).contains("Livro 0-0", "Livro 0-1", "Livro 0-2").doesNotContain("No prazo");
+        Assertions.assertThat(text.indexOf("Livro 0-2")).isLessThan(text.indexOf("Livro 0-0"));
+    }
+
+    private static String recipient(MimeMessage message) {
+        try {
+            return message.getAllRecipients()[0].toString().toLowerCase();
+        } catch (MessagingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}